@@ -0,0 +1,64 @@
+package com.reactivespring.moviesinfoservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of the domain types with Boot's default mapper ({@code reflection}) and with
+ * the one configured by {@link JsonCodecConfig} ({@code blackbird}). Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({"reflection", "blackbird"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private MovieInfo movieInfo;
+    private byte[] movieInfoJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        var builder = Jackson2ObjectMapperBuilder.json();
+        if (mapper.equals("blackbird")) {
+            builder.modulesToInstall(new JsonCodecConfig().blackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"),
+                LocalDate.parse("2005-06-15"));
+        movieInfoJson = objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public byte[] encodeMovieInfo() throws IOException {
+        return objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo decodeMovieInfo() throws IOException {
+        return objectMapper.readValue(movieInfoJson, MovieInfo.class);
+    }
+}
@@ -0,0 +1,153 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Search latency on a catalog of a million generated movie infos: prefix on the search terms, text index, and
+ * the case-insensitive name regex the search box used to approximate, which has to scan every name.
+ * <p>
+ * Needs a MongoDB at {@code -Dbench.mongodb.uri} (default {@code mongodb://localhost:27017}); the catalog is
+ * generated once into the {@code movies-info-bench} database and reused by later runs.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=MovieInfoSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MovieInfoSearchBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int LIMIT = 20;
+
+    private static final String[] TITLE_WORDS = {"dark", "knight", "batman", "begins", "rises", "return", "night",
+            "city", "empire", "strikes", "back", "lost", "star", "river", "house", "dragon", "king", "queen",
+            "winter", "summer", "shadow", "light", "storm", "silent", "golden", "iron", "ghost", "blade", "runner",
+            "last"};
+    private static final String[] FIRST_NAMES = {"Christian", "Michael", "Heath", "Natalie", "Zo\u00eb", "L\u00e9a", "Tom",
+            "Anne", "Gary", "Morgan", "Emma", "Robert", "Scarlett", "Keanu", "Cate", "Hugh", "Pen\u00e9lope", "Joaquin"};
+    private static final String[] LAST_NAMES = {"Bale", "Caine", "Ledger", "Portman", "Kravitz", "Seydoux", "Hardy",
+            "Hathaway", "Oldman", "Freeman", "Stone", "Pattinson", "Johansson", "Reeves", "Blanchett", "Jackman",
+            "Cruz", "Phoenix"};
+
+    private MongoClient client;
+    private ReactiveMongoTemplate template;
+    private MovieInfoSearchRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create(System.getProperty("bench.mongodb.uri", "mongodb://localhost:27017"));
+        template = new ReactiveMongoTemplate(client, "movies-info-bench");
+        repository = new MovieInfoSearchRepositoryImpl(template);
+        if (template.count(new Query(), MovieInfo.class).block() < CATALOG_SIZE) {
+            template.dropCollection(MovieInfo.class).block();
+            seed();
+        }
+        // after seeding, as building the indexes over the loaded catalog is faster than maintaining them on insert
+        var indexOps = template.indexOps(MovieInfo.class);
+        new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext())
+                .resolveIndexFor(MovieInfo.class)
+                .forEach(definition -> indexOps.ensureIndex(definition).block());
+    }
+
+    private void seed() {
+        var random = new Random(42);
+        for (int batch = 0; batch < CATALOG_SIZE / BATCH_SIZE; batch++) {
+            var movieInfos = new ArrayList<MovieInfo>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                var words = 1 + random.nextInt(4);
+                var name = new StringBuilder();
+                for (int w = 0; w < words; w++) {
+                    var word = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+                    name.append(w == 0 ? "" : " ").append(Character.toUpperCase(word.charAt(0))).append(word, 1,
+                            word.length());
+                }
+                name.append(' ').append(batch * BATCH_SIZE + i);
+                var cast = List.of(person(random), person(random), person(random));
+                var year = 1950 + random.nextInt(75);
+                var movieInfo = new MovieInfo(null, name.toString(), year, cast, LocalDate.of(year, 1, 1));
+                movieInfo.setSearchTerms(MovieInfoSearchTerms.of(movieInfo));
+                movieInfo.setSearchName(MovieInfoSearchTerms.normalize(movieInfo.getName()));
+                movieInfos.add(movieInfo);
+            }
+            template.insertAll(movieInfos).blockLast();
+        }
+    }
+
+    private static String person(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public List<MovieInfo> namePrefix() {
+        return repository.findBySearchNamePrefix("knigh", LIMIT).collectList().block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> prefixShort() {
+        return repository.findBySearchTermPrefix("ba", LIMIT).collectList().block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> prefixWord() {
+        return repository.findBySearchTermPrefix("knigh", LIMIT).collectList().block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> prefixCastMember() {
+        return repository.findBySearchTermPrefix(MovieInfoSearchTerms.normalize("Zo\u00eb Kra"), LIMIT)
+                .collectList().block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> textSeveralWords() {
+        return repository.findByText("dark knight rises", LIMIT).collectList().block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> nameRegexScan() {
+        var query = new Query(Criteria.where("name").regex(Pattern.compile("^knigh", Pattern.CASE_INSENSITIVE)))
+                .limit(LIMIT);
+        return template.find(query, MovieInfo.class).collectList().block();
+    }
+
+    @Benchmark
+    public Long nameRegexScanNoMatch() {
+        // a prefix nobody has, so the scan cannot stop early after LIMIT hits
+        var query = new Query(Criteria.where("name").regex(Pattern.compile("^zzz", Pattern.CASE_INSENSITIVE)));
+        return template.find(query, MovieInfo.class).count().block();
+    }
+}
@@ -0,0 +1,170 @@
+package com.reactivespring.moviesinfoservice.config;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.repository.MovieInfoQueryShapes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Creates the indexes declared on {@link MovieInfo} at startup: {@code year}, {@code release_date},
+ * {@code searchTerms} and {@code searchName}, the compound {@code name_year}, {@code cast_year} and
+ * {@code cast_release_date}, and the text index over name and cast.
+ * <p>
+ * It then explains the lookups by year and name, the search name and search term prefix queries, the text search
+ * and every listing filter and sort allowed by {@link MovieInfoQueryShapes}, and reports any planned as a
+ * collection scan or sorted in memory.
+ * <p>
+ * Index builds are logged with their duration, and long builds report their progress every
+ * {@code movies-info.indexes.progress-interval}. {@code movies-info.indexes.collscan-check} decides whether a collection
+ * scan only logs a warning ({@code warn}), stops the application ({@code fail}) or is not checked ({@code off}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer implements ApplicationRunner {
+
+    public enum CollscanCheck { OFF, WARN, FAIL }
+
+    private final ReactiveMongoTemplate template;
+
+    @Value("${movies-info.indexes.collscan-check:warn}")
+    private CollscanCheck collscanCheck;
+
+    @Value("${movies-info.indexes.progress-interval:5s}")
+    private Duration progressInterval;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ensureIndexes(MovieInfo.class);
+        if (collscanCheck == CollscanCheck.OFF) {
+            return;
+        }
+        var movieInfos = template.getCollectionName(MovieInfo.class);
+        var collectionScans = new ArrayList<String>();
+        verifyPlan("findMovieInfoByYear", movieInfos, new Document("year", 2005), null, collectionScans);
+        verifyPlan("findMovieInfoByName", movieInfos, new Document("name", "Batman Begins"), null, collectionScans);
+        verifyPlan("findBySearchNamePrefix", movieInfos,
+                new Document("searchName", new Document("$regex", "^bat")), new Document("searchName", 1),
+                collectionScans);
+        verifyPlan("findBySearchTermPrefix", movieInfos,
+                new Document("searchTerms", new Document("$regex", "^bat")), null, collectionScans);
+        verifyPlan("findByText", movieInfos,
+                new Document("$text", new Document("$search", "dark knight")), null, collectionScans);
+        verifyQueryShapes(movieInfos, collectionScans);
+        if (!collectionScans.isEmpty() && collscanCheck == CollscanCheck.FAIL) {
+            throw new IllegalStateException("Queries planned as collection scans : " + collectionScans);
+        }
+    }
+
+    private void ensureIndexes(Class<?> entityClass) {
+        var indexOps = template.indexOps(entityClass);
+        var resolver = new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext());
+        var collection = template.getCollectionName(entityClass);
+        var definitions = new ArrayList<IndexDefinition>();
+        resolver.resolveIndexFor(entityClass).forEach(definitions::add);
+        for (int i = 0; i < definitions.size(); i++) {
+            var definition = definitions.get(i);
+            log.info("Building index {}/{} on {} : {}", i + 1, definitions.size(), collection,
+                    definition.getIndexKeys());
+            var start = System.nanoTime();
+            var progress = Flux.interval(progressInterval)
+                    .concatMap(tick -> indexBuildProgress(collection))
+                    .subscribe(message -> log.info("Index build on {} in progress : {}", collection, message));
+            try {
+                var name = indexOps.ensureIndex(definition).block();
+                log.info("Index {} on {} ready in {} ms", name, collection,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            } finally {
+                progress.dispose();
+            }
+        }
+    }
+
+    /**
+     * Progress messages of the index builds currently running on the collection, as reported by {@code currentOp}.
+     */
+    private Flux<String> indexBuildProgress(String collection) {
+        var currentOp = new Document("currentOp", 1).append("command.createIndexes", collection);
+        return template.getMongoDatabaseFactory().getMongoDatabase("admin")
+                .flatMap(admin -> Mono.from(admin.runCommand(currentOp)))
+                .flatMapIterable(result -> result.getList("inprog", Document.class, List.of()))
+                .map(operation -> operation.getString("msg") != null ? operation.getString("msg")
+                        : String.valueOf(operation.get("progress")))
+                .onErrorResume(ex -> {
+                    log.debug("Cannot read index build progress : {}", ex.getMessage());
+                    return Flux.empty();
+                });
+    }
+
+    /**
+     * Checks every filter combination, and every sort, that {@link MovieInfoQueryShapes} allows on listings.
+     */
+    private void verifyQueryShapes(String collection, List<String> collectionScans) {
+        Map<String, Object> sampleFilters = Map.of(
+                "year", new Document("$gte", 2000).append("$lte", 2009),
+                "name", "Batman Begins",
+                "cast", "Christian Bale",
+                "release_date", new Document("$gte", new Date(0)).append("$lte", new Date()));
+        MovieInfoQueryShapes.ALLOWED.forEach((shape, sorts) -> {
+            var filter = new Document();
+            shape.stream().sorted().forEach(field -> {
+                var key = field.equals("releaseDate") ? "release_date" : field;
+                filter.append(key, sampleFilters.get(key));
+            });
+            var name = "findMovieInfos(" + String.join(",", new TreeSet<>(shape)) + ")";
+            if (!shape.isEmpty()) {
+                verifyPlan(name, collection, filter, null, collectionScans);
+            }
+            sorts.stream().sorted().forEach(sort -> verifyPlan(name + " sorted by " + sort, collection, filter,
+                    new Document(sort.equals("releaseDate") ? "release_date" : sort, 1), collectionScans));
+        });
+    }
+
+    private void verifyPlan(String query, String collection, Document filter, Document sort,
+                            List<String> collectionScans) {
+        var find = new Document("find", collection).append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        var explain = template.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .block();
+        var stages = new ArrayList<String>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan", Document.class), stages);
+        if (stages.contains("COLLSCAN")) {
+            log.warn("Query {} on {} is planned as a collection scan : {}", query, collection, stages);
+            collectionScans.add(query);
+        } else if (sort != null && stages.contains("SORT")) {
+            log.warn("Query {} on {} sorts in memory : {}", query, collection, stages);
+        } else {
+            log.info("Query {} on {} uses plan {}", query, collection, stages);
+        }
+    }
+
+    private static void collectStages(Document plan, List<String> stages) {
+        if (plan == null) {
+            return;
+        }
+        stages.add(plan.getString("stage"));
+        collectStages(plan.get("inputStage", Document.class), stages);
+        for (var input : plan.getList("inputStages", Document.class, List.of())) {
+            collectStages(input, stages);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.reactivespring.moviesinfoservice.config;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in the search terms and search name of the movie infos stored before they were maintained. Only those two
+ * fields are written, and only while the movie info still lacks them, so a movie info saved in the meantime keeps
+ * what {@link com.reactivespring.moviesinfoservice.repository.MovieInfoSearchTermsCallback} computed for it.
+ * Runs in the background at startup; until it is done those movie infos are only found
+ * by the text index.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchTermsBackfill implements ApplicationRunner {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        template.find(new Query(Criteria.where("searchName").exists(false)), MovieInfo.class)
+                .concatMap(movieInfo -> template.updateFirst(
+                        new Query(Criteria.where("_id").is(movieInfo.getMovieInfoId()).and("searchName").exists(false)),
+                        new Update()
+                                .set("searchName", movieInfo.getName() != null
+                                        ? MovieInfoSearchTerms.normalize(movieInfo.getName())
+                                        : null)
+                                .set("searchTerms", MovieInfoSearchTerms.of(movieInfo)),
+                        MovieInfo.class))
+                .filter(result -> result.getModifiedCount() > 0)
+                .count()
+                .subscribe(count -> {
+                    if (count > 0) {
+                        log.info("Backfilled search terms of {} movie infos", count);
+                    }
+                }, ex -> log.error("Search terms backfill failed : {}", ex.getMessage()));
+    }
+}
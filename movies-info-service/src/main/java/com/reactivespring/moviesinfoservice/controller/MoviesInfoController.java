@@ -1,47 +1,149 @@
 package com.reactivespring.moviesinfoservice.controller;
 
 import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoBatchItem;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoEvent;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+import com.reactivespring.moviesinfoservice.repository.MovieInfoQueryShapes;
 import com.reactivespring.moviesinfoservice.service.MoviesInfoService;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEventBuffer;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 import org.springframework.http.MediaType;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/v1")
 @RequiredArgsConstructor
 public class MoviesInfoController {
 
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final MoviesInfoService service;
+    private final MovieInfoEventBuffer eventBuffer;
+
+    private static final Set<String> MOVIE_INFO_FIELDS = Set.of("movieInfoId", "name", "year", "cast", "releaseDate");
+
+    @Value("${movies-info.query.max-limit:1000}")
+    private int queryMaxLimit;
+
+    @Value("${movies-info.batch.max-ids:500}")
+    private int batchMaxIds;
+
+    @Value("${movies-info.search.default-limit:20}")
+    private int searchDefaultLimit;
+
+    @Value("${movies-info.search.max-limit:100}")
+    private int searchMaxLimit;
 
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
 
+    /**
+     * Lists movie infos matching every given filter, in one query: {@code year} or the inclusive range
+     * {@code yearFrom}/{@code yearTo}, {@code name}, {@code cast} (one cast member) and
+     * {@code releaseDateFrom}/{@code releaseDateTo}. {@code sort} names a field ({@code -year} for descending) and
+     * {@code limit} caps the results at most {@code movies-info.query.max-limit}. Combinations no index serves
+     * are rejected, see {@link MovieInfoQueryShapes}.
+     * <p>
+     * {@code fields} (e.g. {@code fields=name,year}) limits the movie infos to those fields, read with a projection.
+     */
     @GetMapping("/movieinfos")
     public Flux<MovieInfo> getAll(
             @RequestParam(value = "year", required = false) Integer year,
-            @RequestParam(value = "name", required = false) String name
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "cast", required = false) String cast,
+            @RequestParam(value = "releaseDateFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releaseDateFrom,
+            @RequestParam(value = "releaseDateTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releaseDateTo,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields
     ) {
-        if (year != null) {
-            return service.getByYear(year);
+        if (fields != null) {
+            var unknown = fields.stream().filter(field -> !MOVIE_INFO_FIELDS.contains(field)).sorted().toList();
+            if (!unknown.isEmpty()) {
+                return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown fields : " + String.join(",", unknown)));
+            }
         }
-        if (name != null) {
-            return service.getByName(name);
+        if (year != null && (yearFrom != null || yearTo != null)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "year cannot be combined with yearFrom or yearTo"));
         }
-        return service.getAll();
+        if (limit != null && limit < 1) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive"));
+        }
+        var filter = new MovieInfoFilter(year != null ? year : yearFrom, year != null ? year : yearTo, name, cast,
+                releaseDateFrom, releaseDateTo, sort, limit != null ? Math.min(limit, queryMaxLimit) : null);
+        if (filter.isEmpty() && fields == null) {
+            return service.getAll();
+        }
+        try {
+            MovieInfoQueryShapes.check(filter);
+        } catch (IllegalArgumentException ex) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage()));
+        }
+        return service.getAll(filter, fields);
+    }
+
+    /**
+     * Looks up to {@code movies-info.batch.max-ids} movie infos at once, streaming one item per requested id in
+     * request order, with status 404 for the ids that have no movie info.
+     */
+    @PostMapping(value = "/movieinfos/batch-get", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoBatchItem> getByIds(@RequestBody List<String> ids) {
+        if (ids.isEmpty() || ids.size() > batchMaxIds) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Number of movie info ids must be between 1 and " + batchMaxIds));
+        }
+        if (ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "movie info ids must not be blank"));
+        }
+        return service.getByIds(ids);
+    }
+
+    /**
+     * Movie infos whose name or cast starts with {@code q}, ranked by {@link MoviesInfoService#search}.
+     * {@code limit} defaults to {@code movies-info.search.default-limit} and is capped at
+     * {@code movies-info.search.max-limit}.
+     */
+    @GetMapping("/movieinfos/search")
+    public Flux<MovieInfo> search(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        if (q == null || q.isBlank()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must be present"));
+        }
+        if (limit != null && limit < 1) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive"));
+        }
+        return service.search(q, Math.min(limit != null ? limit : searchDefaultLimit, searchMaxLimit));
     }
 
     @GetMapping("/movieinfos/{id}")
@@ -51,16 +153,50 @@ public class MoviesInfoController {
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * Streams movie info events as NDJSON, first the retained ones after the offset to resume from, then live.
+     * {@code from} is the first sequence wanted; otherwise {@code Last-Event-ID} is the id of the last event
+     * received. Without either, every retained event is replayed. An offset that is no longer retained gets a
+     * {@link MovieInfoEvent.Type#RESET} event first.
+     */
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getById() {
-        return movieInfoSink.asFlux();
+    public Flux<MovieInfoEvent> getStream(
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId
+    ) {
+        if (from != null && from < 1) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be positive"));
+        }
+        try {
+            if (from != null) {
+                return eventBuffer.replayFrom(from);
+            }
+            return lastEventId != null ? eventBuffer.replayAfter(lastEventId) : eventBuffer.replayRetained();
+        } catch (IllegalArgumentException ex) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Like {@link #getStream} as server-sent events, whose ids let an {@code EventSource} resume by itself.
+     */
+    @GetMapping(value = "/movieinfos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfoEvent>> getEventStream(
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId
+    ) {
+        return getStream(from, lastEventId)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getEventId())
+                        .event(event.getType().name().toLowerCase(Locale.ROOT))
+                        .build());
     }
 
     @PostMapping("/movieinfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> create(@RequestBody @Valid MovieInfo movieInfo) {
         return service.addMovieInfo(movieInfo)
-                .doOnNext(savedInfo -> movieInfoSink.tryEmitNext(savedInfo));
+                .doOnNext(eventBuffer::publish);
     }
 
     @PutMapping("/movieinfos/{id}")
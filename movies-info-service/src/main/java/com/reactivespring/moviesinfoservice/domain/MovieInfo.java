@@ -1,12 +1,19 @@
 package com.reactivespring.moviesinfoservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -17,17 +24,45 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+@CompoundIndexes({
+        @CompoundIndex(name = "name_year", def = "{'name': 1, 'year': 1}"),
+        @CompoundIndex(name = "cast_year", def = "{'cast': 1, 'year': 1}"),
+        @CompoundIndex(name = "cast_release_date", def = "{'cast': 1, 'release_date': 1}")
+})
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
     @NotBlank(message = "movieInfo.name must be present")
+    @TextIndexed(weight = 2)
     private String name;
     @NotNull
     @Positive(message = "movieInfo.name must be a positive value")
+    @Indexed
     private Integer year;
 
+    @TextIndexed
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     @Field("release_date")
+    @Indexed
     private LocalDate releaseDate;
+    /**
+     * Normalized name and cast members, whole and word by word, kept up to date on save for prefix search.
+     */
+    @Indexed
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private List<String> searchTerms;
+    /**
+     * Normalized name, kept up to date on save so exact and name prefix matches come out of the index in order.
+     */
+    @Indexed
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private String searchName;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null, null);
+    }
 }
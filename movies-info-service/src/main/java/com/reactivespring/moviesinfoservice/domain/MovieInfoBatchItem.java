@@ -0,0 +1,28 @@
+package com.reactivespring.moviesinfoservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One requested id of a batch get: status 200 with the movie info, or 404 when there is no movie info with that id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoBatchItem {
+
+    private String movieInfoId;
+    private Integer status;
+    private MovieInfo movieInfo;
+
+    public static MovieInfoBatchItem found(String movieInfoId, MovieInfo movieInfo) {
+        return new MovieInfoBatchItem(movieInfoId, 200, movieInfo);
+    }
+
+    public static MovieInfoBatchItem notFound(String movieInfoId) {
+        return new MovieInfoBatchItem(movieInfoId, 404, null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.reactivespring.moviesinfoservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A movie info event as streamed to subscribers, numbered by a sequence that increases by one per event.
+ * {@code eventId} is the sequence prefixed with the epoch of the instance that issued it, which is what
+ * {@code Last-Event-ID} expects back.
+ * <p>
+ * A {@link Type#RESET} event carries no movie info: the offset the subscriber asked to resume from is no longer
+ * retained (or was never issued, e.g. before a restart), so it should discard what it has and rebuild from the
+ * events that follow. Its sequence is the one to resume after on the next reconnect.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoEvent {
+
+    private String eventId;
+    private long sequence;
+    private Instant publishedAt;
+    private Type type;
+    private MovieInfo movieInfo;
+
+    public enum Type {
+        CREATED, RESET
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.moviesinfoservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Filters, sort and limit of a movie info listing, all combined into one query. Ranges are inclusive and may be
+ * open on either side; {@code sort} is a field name, prefixed with {@code -} for descending order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoFilter {
+
+    private Integer yearFrom;
+    private Integer yearTo;
+    private String name;
+    private String cast;
+    private LocalDate releaseDateFrom;
+    private LocalDate releaseDateTo;
+    private String sort;
+    private Integer limit;
+
+    /**
+     * The fields filtered on, which with the sort field make up the shape of the query.
+     */
+    public Set<String> filteredFields() {
+        var fields = new LinkedHashSet<String>();
+        if (yearFrom != null || yearTo != null) {
+            fields.add("year");
+        }
+        if (name != null) {
+            fields.add("name");
+        }
+        if (cast != null) {
+            fields.add("cast");
+        }
+        if (releaseDateFrom != null || releaseDateTo != null) {
+            fields.add("releaseDate");
+        }
+        return fields;
+    }
+
+    public boolean isEmpty() {
+        return filteredFields().isEmpty() && sort == null && limit == null;
+    }
+
+    public String sortField() {
+        return sort != null && sort.startsWith("-") ? sort.substring(1) : sort;
+    }
+
+    public boolean isDescending() {
+        return sort != null && sort.startsWith("-");
+    }
+}
@@ -0,0 +1,51 @@
+package com.reactivespring.moviesinfoservice.domain;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes names for search: accents removed, lower case, and anything but letters and digits turned into
+ * single spaces. A normalized string never needs escaping in a regular expression.
+ */
+public final class MovieInfoSearchTerms {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private MovieInfoSearchTerms() {
+    }
+
+    public static String normalize(String value) {
+        var withoutMarks = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * The normalized name and cast members, each whole and word by word, so a prefix of any of them matches.
+     */
+    public static List<String> of(MovieInfo movieInfo) {
+        var terms = new LinkedHashSet<String>();
+        add(terms, movieInfo.getName());
+        if (movieInfo.getCast() != null) {
+            movieInfo.getCast().forEach(member -> add(terms, member));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static void add(Set<String> terms, String value) {
+        if (value == null) {
+            return;
+        }
+        var normalized = normalize(value);
+        if (!normalized.isEmpty()) {
+            terms.add(normalized);
+            terms.addAll(Arrays.asList(normalized.split(" ")));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * Movie info listings combining several filters, a sort and a limit in one query, optionally reading only some
+ * of the fields so the others never leave the database.
+ */
+public interface MovieInfoQueryRepository {
+
+    /**
+     * Movie infos matching every filter of {@code filter}, holding only {@code fields}, or every field when
+     * {@code fields} is null. The filter shape must be one of {@link MovieInfoQueryShapes#ALLOWED}.
+     */
+    Flux<MovieInfo> findMovieInfos(MovieInfoFilter filter, Collection<String> fields);
+}
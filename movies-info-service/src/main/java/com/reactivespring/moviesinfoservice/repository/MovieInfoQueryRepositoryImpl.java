@@ -0,0 +1,60 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+class MovieInfoQueryRepositoryImpl implements MovieInfoQueryRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<MovieInfo> findMovieInfos(MovieInfoFilter filter, Collection<String> fields) {
+        MovieInfoQueryShapes.check(filter);
+        var query = new Query();
+        if (filter.getName() != null) {
+            query.addCriteria(Criteria.where("name").is(filter.getName()));
+        }
+        if (filter.getCast() != null) {
+            query.addCriteria(Criteria.where("cast").is(filter.getCast()));
+        }
+        range(query, "year", filter.getYearFrom(), filter.getYearTo());
+        range(query, "releaseDate", filter.getReleaseDateFrom(), filter.getReleaseDateTo());
+        if (filter.getSort() != null) {
+            query.with(Sort.by(filter.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC, filter.sortField()));
+        }
+        if (filter.getLimit() != null) {
+            query.limit(filter.getLimit());
+        }
+        if (fields != null) {
+            fields.forEach(field -> query.fields().include(field));
+            if (!fields.contains("movieInfoId")) {
+                // the id is returned unless excluded, and would keep e.g. the name index from covering the query
+                query.fields().exclude("movieInfoId");
+            }
+        }
+        return template.find(query, MovieInfo.class);
+    }
+
+    private static void range(Query query, String field, Object from, Object to) {
+        if (from == null && to == null) {
+            return;
+        }
+        var criteria = Criteria.where(field);
+        if (from != null) {
+            criteria.gte(from);
+        }
+        if (to != null) {
+            criteria.lte(to);
+        }
+        query.addCriteria(criteria);
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The filter combinations a movie info listing may use, each one served by an index declared on
+ * {@link com.reactivespring.moviesinfoservice.domain.MovieInfo}, with the fields that index can also return it
+ * sorted by. Any other combination would scan the collection or sort it in memory, so it is rejected.
+ */
+public final class MovieInfoQueryShapes {
+
+    public static final Map<Set<String>, Set<String>> ALLOWED = Map.of(
+            // no filter lists everything, as before; sorted through year, name_year or releaseDate
+            Set.of(), Set.of("year", "name", "releaseDate"),
+            Set.of("year"), Set.of("year"),
+            Set.of("name"), Set.of("name", "year"),
+            Set.of("name", "year"), Set.of("name", "year"),
+            Set.of("cast"), Set.of("year", "releaseDate"),
+            Set.of("cast", "year"), Set.of("year"),
+            Set.of("releaseDate"), Set.of("releaseDate"),
+            Set.of("cast", "releaseDate"), Set.of("releaseDate"));
+
+    private MovieInfoQueryShapes() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when the filter combination, or its sort, is not served by an index
+     */
+    public static void check(MovieInfoFilter filter) {
+        var filtered = filter.filteredFields();
+        var sorts = ALLOWED.get(filtered);
+        if (sorts == null) {
+            throw new IllegalArgumentException("Unsupported filter combination : " + String.join(",",
+                    new TreeSet<>(filtered)) + ", supported combinations are " + describe());
+        }
+        var sortField = filter.sortField();
+        if (sortField != null && !sorts.contains(sortField)) {
+            throw new IllegalArgumentException("Cannot sort by " + sortField + " when filtering on "
+                    + (filtered.isEmpty() ? "nothing" : String.join(",", new TreeSet<>(filtered)))
+                    + ", supported sorts are " + String.join(",", new TreeSet<>(sorts)));
+        }
+    }
+
+    private static String describe() {
+        return ALLOWED.keySet().stream()
+                .filter(shape -> !shape.isEmpty())
+                .map(shape -> String.join("+", new TreeSet<>(shape)))
+                .sorted()
+                .toList()
+                .toString();
+    }
+}
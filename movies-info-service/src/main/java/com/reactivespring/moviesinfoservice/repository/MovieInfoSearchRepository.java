@@ -0,0 +1,27 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+
+/**
+ * Movie info lookups by the search terms maintained on save and by the text index over name and cast.
+ */
+public interface MovieInfoSearchRepository {
+
+    /**
+     * At most {@code limit} movie infos whose normalized name starts with {@code prefix}, in name order, so an
+     * exact match comes first. {@code prefix} must already be normalized.
+     */
+    Flux<MovieInfo> findBySearchNamePrefix(String prefix, int limit);
+
+    /**
+     * At most {@code limit} movie infos, in no particular order, with a search term starting with {@code prefix}, which must already be
+     * normalized with {@link com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms#normalize}.
+     */
+    Flux<MovieInfo> findBySearchTermPrefix(String prefix, int limit);
+
+    /**
+     * At most {@code limit} movie infos matching any word of {@code text}, best text score first.
+     */
+    Flux<MovieInfo> findByText(String text, int limit);
+}
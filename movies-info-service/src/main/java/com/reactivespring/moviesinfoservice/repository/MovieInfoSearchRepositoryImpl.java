@@ -0,0 +1,42 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import reactor.core.publisher.Flux;
+
+@RequiredArgsConstructor
+class MovieInfoSearchRepositoryImpl implements MovieInfoSearchRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<MovieInfo> findBySearchNamePrefix(String prefix, int limit) {
+        // sorted on the indexed field the range is scanned in order, so the limit keeps the best name matches
+        var query = new Query(Criteria.where("searchName").regex("^" + prefix))
+                .with(Sort.by("searchName"))
+                .limit(limit);
+        return template.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findBySearchTermPrefix(String prefix, int limit) {
+        // normalized terms hold only letters, digits and spaces, so the prefix needs no quoting and the
+        // anchored regex stays a range scan on the searchTerms index
+        var query = new Query(Criteria.where("searchTerms").regex("^" + prefix)).limit(limit);
+        return template.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByText(String text, int limit) {
+        var query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .limit(limit);
+        return template.find(query, MovieInfo.class);
+    }
+}
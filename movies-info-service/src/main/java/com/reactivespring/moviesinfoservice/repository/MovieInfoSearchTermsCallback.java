@@ -0,0 +1,22 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Recomputes {@link MovieInfo#getSearchTerms()} and {@link MovieInfo#getSearchName()} whenever a movie info is saved, whichever way it is saved.
+ */
+@Component
+public class MovieInfoSearchTermsCallback implements ReactiveBeforeConvertCallback<MovieInfo> {
+
+    @Override
+    public Publisher<MovieInfo> onBeforeConvert(MovieInfo entity, String collection) {
+        entity.setSearchTerms(MovieInfoSearchTerms.of(entity));
+        entity.setSearchName(entity.getName() != null ? MovieInfoSearchTerms.normalize(entity.getName()) : null);
+        return Mono.just(entity);
+    }
+}
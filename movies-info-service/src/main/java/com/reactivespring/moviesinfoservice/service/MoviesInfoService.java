@@ -1,28 +1,97 @@
 package com.reactivespring.moviesinfoservice.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoBatchItem;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms;
 import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
-@RequiredArgsConstructor
 public class MoviesInfoService {
 
     private final MovieInfoRepository repository;
+    private final AsyncCache<String, MovieInfo> cache;
+
+    @Value("${movies-info.search.candidates:200}")
+    private int searchCandidates;
 
+    public MoviesInfoService(MovieInfoRepository repository,
+                             MeterRegistry meterRegistry,
+                             @Value("${movies-info.cache.enabled:true}") boolean cacheEnabled,
+                             @Value("${movies-info.cache.maximum-size:10000}") long cacheMaximumSize,
+                             @Value("${movies-info.cache.expire-after:10m}") Duration cacheExpireAfter) {
+        this.repository = repository;
+        if (cacheEnabled) {
+            // size-based eviction uses W-TinyLFU admission, which keeps the few hot movie infos resident;
+            // expire-after only bounds how long an entry can outlive a write made by another instance
+            this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                    .maximumSize(cacheMaximumSize)
+                    .expireAfterWrite(cacheExpireAfter)
+                    .recordStats()
+                    .buildAsync(), "movies-info");
+            Gauge.builder("movies.info.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                    .tag("cache", "movies-info")
+                    .register(meterRegistry);
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Saves {@code movieInfo}, replacing the movie info of the same id if there is one, in which case the cached
+     * movie info is dropped as after an update.
+     */
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return repository.save(movieInfo);
+        var id = movieInfo.getMovieInfoId();
+        return id != null ? invalidatingAfter(repository.save(movieInfo), id) : repository.save(movieInfo);
     }
 
     public Flux<MovieInfo> getAll() {
         return repository.findAll();
     }
 
+    /**
+     * Reads through the cache; concurrent misses for the same id share one lookup. A missing movie info is not
+     * cached.
+     */
     public Mono<MovieInfo> getById(String id) {
-        return repository.findById(id);
+        if (cache == null) {
+            return repository.findById(id);
+        }
+        // concurrent callers for one id share a single Mongo lookup; cancellation is suppressed, so neither a
+        // caller going away nor the DeadlineWebFilter timing out a request cancels the lookup the others wait on
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> repository.findById(key).toFuture()), true);
+    }
+
+    /**
+     * The movie infos of {@code ids} in one {@code $in} query, one item per id in the order given, with a
+     * not found item for each id that has no movie info.
+     */
+    public Flux<MovieInfoBatchItem> getByIds(List<String> ids) {
+        return repository.findAllById(new LinkedHashSet<>(ids))
+                .collectMap(MovieInfo::getMovieInfoId)
+                .flatMapIterable(found -> ids.stream()
+                        .map(id -> found.containsKey(id)
+                                ? MovieInfoBatchItem.found(id, found.get(id))
+                                : MovieInfoBatchItem.notFound(id))
+                        .toList());
     }
 
     public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfo, String id) {
@@ -32,14 +101,31 @@ public class MoviesInfoService {
                     saved.setYear(movieInfo.getYear());
                     saved.setCast(movieInfo.getCast());
                     saved.setReleaseDate(movieInfo.getReleaseDate());
-                    return repository.save(saved);
+                    return invalidatingAfter(repository.save(saved), id);
                 });
     }
 
     public Mono<Void> deleteMovieInfo(String id) {
         return repository.findById(id)
                 .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Not found")))
-                .flatMap(saved -> repository.deleteById(id));
+                .flatMap(saved -> invalidatingAfter(repository.deleteById(id), id));
+    }
+
+    /**
+     * Drops the cached movie info once the write has finished, whatever its outcome, and before the writer
+     * sees it complete, so no read that starts after the write can be served the old movie info. A lookup
+     * still in flight is dropped too: its result only reaches the callers already waiting for it and is
+     * never cached.
+     */
+    private <T> Mono<T> invalidatingAfter(Mono<T> write, String id) {
+        if (cache == null) {
+            return write;
+        }
+        // doOnSuccess and doOnError run before the signal is passed on, unlike doFinally
+        return write
+                .doOnSuccess(result -> cache.synchronous().invalidate(id))
+                .doOnError(ex -> cache.synchronous().invalidate(id))
+                .doOnCancel(() -> cache.synchronous().invalidate(id));
     }
 
     public Flux<MovieInfo> getByYear(Integer year) {
@@ -49,4 +135,81 @@ public class MoviesInfoService {
     public Flux<MovieInfo> getByName(String name) {
         return repository.findMovieInfoByName(name);
     }
+
+    /**
+     * Movie infos matching every filter of {@code filter}, in one query, reading only {@code fields} unless null.
+     *
+     * @throws IllegalArgumentException when no index serves the filter combination or its sort
+     */
+    public Flux<MovieInfo> getAll(MovieInfoFilter filter, Set<String> fields) {
+        return repository.findMovieInfos(filter, fields);
+    }
+
+    /**
+     * Movie infos whose name or cast starts with {@code q}, ignoring case and accents, best match first:
+     * exact name, then name prefix, cast member prefix, a later word of the name, a later word of a cast member.
+     * <p>
+     * Exact and name prefix matches come from their own query in name order, so they are never crowded out.
+     * Only when they are fewer than {@code limit} is the rest filled from at most {@code search.candidates}
+     * search term matches, ranked in memory; past that many candidates a cast or later word match may be missed.
+     * Queries of several words are topped up from the text index when prefixes alone find fewer than {@code limit}.
+     */
+    public Flux<MovieInfo> search(String q, int limit) {
+        var prefix = MovieInfoSearchTerms.normalize(q);
+        if (prefix.isEmpty()) {
+            return Flux.empty();
+        }
+        var ranked = repository.findBySearchNamePrefix(prefix, limit)
+                .collectList()
+                .flatMap(nameMatches -> nameMatches.size() >= limit
+                        ? Mono.just(nameMatches)
+                        : termMatches(prefix, nameMatches, limit));
+        if (!prefix.contains(" ")) {
+            return ranked.flatMapIterable(movieInfos -> movieInfos);
+        }
+        return ranked.flatMapMany(movieInfos -> {
+            if (movieInfos.size() >= limit) {
+                return Flux.fromIterable(movieInfos);
+            }
+            return repository.findByText(q, limit)
+                    .collectList()
+                    .flatMapIterable(textMatches -> merge(movieInfos, textMatches, limit));
+        });
+    }
+
+    private Mono<List<MovieInfo>> termMatches(String prefix, List<MovieInfo> nameMatches, int limit) {
+        var found = nameMatches.stream().map(MovieInfo::getMovieInfoId).collect(Collectors.toSet());
+        return repository.findBySearchTermPrefix(prefix, searchCandidates)
+                .filter(movieInfo -> !found.contains(movieInfo.getMovieInfoId()))
+                .collectSortedList(Comparator.<MovieInfo>comparingInt(movieInfo -> rank(prefix, movieInfo))
+                        .thenComparing(MovieInfo::getName, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(ranked -> merge(nameMatches, ranked, limit));
+    }
+
+    private static List<MovieInfo> merge(List<MovieInfo> first, List<MovieInfo> then, int limit) {
+        var results = new LinkedHashMap<String, MovieInfo>();
+        first.forEach(movieInfo -> results.put(movieInfo.getMovieInfoId(), movieInfo));
+        then.forEach(movieInfo -> results.putIfAbsent(movieInfo.getMovieInfoId(), movieInfo));
+        return results.values().stream().limit(limit).toList();
+    }
+
+    static int rank(String prefix, MovieInfo movieInfo) {
+        var name = movieInfo.getName() != null ? MovieInfoSearchTerms.normalize(movieInfo.getName()) : "";
+        if (name.equals(prefix)) {
+            return 0;
+        }
+        if (name.startsWith(prefix)) {
+            return 1;
+        }
+        List<String> cast = movieInfo.getCast() != null
+                ? movieInfo.getCast().stream().map(MovieInfoSearchTerms::normalize).toList()
+                : List.of();
+        if (cast.stream().anyMatch(member -> member.startsWith(prefix))) {
+            return 2;
+        }
+        if (name.contains(" " + prefix)) {
+            return 3;
+        }
+        return 4;
+    }
 }
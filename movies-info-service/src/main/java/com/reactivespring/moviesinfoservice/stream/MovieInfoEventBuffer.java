@@ -0,0 +1,153 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Numbers movie info events, fans them out to the stream subscribers and keeps a bounded window of recent events
+ * for subscribers resuming from an offset.
+ * <p>
+ * The window holds at most {@code maxCount} events, none older than {@code maxAge}. Sequences start at 1 and
+ * are not persisted; event ids carry the epoch of this instance, so resuming with an id issued before a restart
+ * gets a {@link MovieInfoEvent.Type#RESET} rather than events numbered from another history.
+ * A stream client too slow for the live feed misses events; reconnecting with its last sequence or
+ * {@code Last-Event-ID} picks them up from the window while they are still retained.
+ */
+@Component
+public class MovieInfoEventBuffer {
+
+    private final int maxCount;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final String epoch;
+
+    private final Deque<MovieInfoEvent> ring = new ArrayDeque<>();
+    private final Sinks.Many<MovieInfoEvent> live = Sinks.many().multicast().directBestEffort();
+    private long sequence;
+
+    @Autowired
+    public MovieInfoEventBuffer(@Value("${movies-info.stream.retention.max-count:1000}") int maxCount,
+                                @Value("${movies-info.stream.retention.max-age:10m}") Duration maxAge) {
+        this(maxCount, maxAge, Clock.systemUTC());
+    }
+
+    MovieInfoEventBuffer(int maxCount, Duration maxAge, Clock clock) {
+        this.maxCount = maxCount;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.epoch = Long.toString(clock.millis(), Character.MAX_RADIX);
+    }
+
+    public synchronized void publish(MovieInfo movieInfo) {
+        evictExpired();
+        sequence++;
+        var event = new MovieInfoEvent(eventId(sequence), sequence, clock.instant(), MovieInfoEvent.Type.CREATED,
+                movieInfo);
+        if (maxCount > 0) {
+            if (ring.size() >= maxCount) {
+                ring.removeFirst();
+            }
+            ring.addLast(event);
+        }
+        // emitted under the lock subscribe() copies the window under, so each subscriber sees every sequence once
+        live.tryEmitNext(event);
+    }
+
+    /**
+     * Every retained event, then live ones.
+     */
+    public Flux<MovieInfoEvent> replayRetained() {
+        return subscribe(null);
+    }
+
+    /**
+     * The events from sequence {@code from} on, then live ones. When {@code from} is older than the retained
+     * window or past the next sequence, a reset event comes first, followed by every retained event.
+     */
+    public Flux<MovieInfoEvent> replayFrom(long from) {
+        return subscribe(from);
+    }
+
+    /**
+     * The events after {@code lastEventId}, as sent in {@code Last-Event-ID}, then live ones. An id issued by
+     * another instance or before a restart is treated like an offset that is no longer retained.
+     *
+     * @throws IllegalArgumentException when {@code lastEventId} is not an event id
+     */
+    public Flux<MovieInfoEvent> replayAfter(String lastEventId) {
+        var separator = lastEventId.lastIndexOf('-');
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid event id : " + lastEventId);
+        }
+        if (separator < 0 || lastSequence < 0) {
+            throw new IllegalArgumentException("Invalid event id : " + lastEventId);
+        }
+        // an unknown epoch can never be served, so ask for an offset before the window to force a reset
+        return subscribe(lastEventId.substring(0, separator).equals(epoch) ? lastSequence + 1 : 0L);
+    }
+
+    public synchronized int size() {
+        evictExpired();
+        return ring.size();
+    }
+
+    private Flux<MovieInfoEvent> subscribe(Long from) {
+        return Flux.defer(() -> {
+            // events published while the window is copied arrive on the already connected feed;
+            // any the copy already holds are dropped by sequence
+            var feed = live.asFlux().publish();
+            var connection = feed.connect();
+            List<MovieInfoEvent> snapshot;
+            long lastReplayed;
+            synchronized (this) {
+                snapshot = snapshot(from);
+                lastReplayed = sequence;
+            }
+            return Flux.concat(Flux.fromIterable(snapshot), feed.filter(event -> event.getSequence() > lastReplayed))
+                    .doFinally(signal -> connection.dispose());
+        });
+    }
+
+    private List<MovieInfoEvent> snapshot(Long from) {
+        evictExpired();
+        // sequences are contiguous, so the window starts right after the evicted ones
+        var firstRetained = sequence - ring.size() + 1;
+        var selected = new ArrayList<MovieInfoEvent>();
+        if (from == null) {
+            selected.addAll(ring);
+        } else if (from < firstRetained || from > sequence + 1) {
+            selected.add(new MovieInfoEvent(eventId(firstRetained - 1), firstRetained - 1, clock.instant(),
+                    MovieInfoEvent.Type.RESET, null));
+            selected.addAll(ring);
+        } else {
+            ring.stream().filter(event -> event.getSequence() >= from).forEach(selected::add);
+        }
+        return selected;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private void evictExpired() {
+        var oldestAllowed = clock.instant().minus(maxAge);
+        while (!ring.isEmpty() && ring.peekFirst().getPublishedAt().isBefore(oldestAllowed)) {
+            ring.removeFirst();
+        }
+    }
+}
@@ -1,21 +1,29 @@
 package com.reactivespring.moviesinfoservice.controller;
 
 import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoBatchItem;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoEvent;
 import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
+import com.reactivespring.moviesinfoservice.service.MoviesInfoService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -30,6 +38,12 @@ class MoviesInfoControllerTest {
     @Autowired
     MovieInfoRepository repository;
 
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    MoviesInfoService service;
+
     private final String MOVIES_INFO_URL = "/v1/movieinfos";
 
     private final List<MovieInfo> moviesInfos = List.of(
@@ -52,7 +66,9 @@ class MoviesInfoControllerTest {
     @BeforeEach
     void setUp() {
 
-        repository.saveAll(moviesInfos)
+        // saved through the service, so "abc" cached by an earlier test is dropped when it is saved again
+        Flux.fromIterable(moviesInfos)
+                .concatMap(service::addMovieInfo)
                 .blockLast();
     }
 
@@ -116,12 +132,45 @@ class MoviesInfoControllerTest {
                 .uri(MOVIES_INFO_URL + "/stream")
                 .exchange()
                 .expectStatus().is2xxSuccessful()
-                .returnResult(MovieInfo.class)
+                .returnResult(MovieInfoEvent.class)
                 .getResponseBody();
 
         StepVerifier.create(moviesStreamFlux)
-                .assertNext(movieInfo1 -> {
-                    assert movieInfo1 != null;
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.CREATED, event.getType());
+                    assert event.getMovieInfo() != null;
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getAll_stream_resume_from_last_event_id() {
+        var first = new MovieInfo(null, "Batman Returns", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        var second = new MovieInfo(null, "Batman Forever", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        client.post().uri(MOVIES_INFO_URL).bodyValue(first).exchange().expectStatus().isCreated();
+
+        var lastEvent = client.get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .filter(event -> event.getMovieInfo().getName().equals("Batman Returns"))
+                .blockFirst();
+        client.post().uri(MOVIES_INFO_URL).bodyValue(second).exchange().expectStatus().isCreated();
+
+        var resumed = client.get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .header("Last-Event-ID", lastEvent.getEventId())
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody();
+
+        StepVerifier.create(resumed)
+                .assertNext(event -> {
+                    assertEquals(lastEvent.getSequence() + 1, event.getSequence());
+                    assertEquals("Batman Forever", event.getMovieInfo().getName());
                 })
                 .thenCancel()
                 .verify();
@@ -153,6 +202,88 @@ class MoviesInfoControllerTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getAllByYear_with_fields() {
+        var uri = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
+                .queryParam("year", 2008)
+                .queryParam("fields", "name")
+                .buildAndExpand().toUri();
+        client.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .json("[{\"name\":\"The Dark Knight\"},{\"name\":\"Dark Knight Rises\"}]", true);
+    }
+
+    @Test
+    void search_by_name_and_cast_prefix() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q={q}", "DARK")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .value(movieInfos -> assertThat(movieInfos).extracting(MovieInfo::getName)
+                        .containsExactly("Dark Knight Rises", "The Dark Knight"));
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q={q}&limit=2", "christian b")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void search_several_words_from_text_index() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q={q}", "knight begins")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getAll_combined_filters_sorted_and_limited() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "?yearFrom=2000&yearTo=2009&cast={cast}&sort=-year&limit=2", "Christian Bale")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .value(movieInfos -> assertThat(movieInfos).extracting(MovieInfo::getYear)
+                        .containsExactly(2008, 2008));
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "?name={name}&yearFrom=2006", "The Dark Knight")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "?releaseDateFrom=2005-01-01&releaseDateTo=2005-12-31")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void batchGet_in_request_order() {
+        client.post()
+                .uri(MOVIES_INFO_URL + "/batch-get")
+                .bodyValue(List.of("def", "abc"))
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfoBatchItem.class)
+                .value(items -> {
+                    assertThat(items).extracting(MovieInfoBatchItem::getMovieInfoId).containsExactly("def", "abc");
+                    assertThat(items).extracting(MovieInfoBatchItem::getStatus).containsExactly(404, 200);
+                    assertEquals("Dark Knight Rises", items.get(1).getMovieInfo().getName());
+                });
+    }
+
     @Test
     void getById() {
         var movieInfoId = "abc";
@@ -196,6 +327,52 @@ class MoviesInfoControllerTest {
                 });
     }
 
+    @Test
+    void updateMovieInfo_not_served_stale_from_cache() {
+        var movieInfoId = "abc";
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises");
+
+        client.put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(new MovieInfo(null, "The Dark Knight Rises", 2012, List.of("Christian Bale"),
+                        LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("The Dark Knight Rises");
+    }
+
+    @Test
+    void addMovieInfo_over_cached_id_not_served_stale_from_cache() {
+        var movieInfoId = "abc";
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises");
+
+        client.post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(new MovieInfo(movieInfoId, "The Dark Knight Rises", 2012, List.of("Christian Bale"),
+                        LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("The Dark Knight Rises");
+    }
+
     @Test
     void updateMovieInfo_not_found() {
         var movieInfoId = "def";
@@ -242,4 +419,14 @@ class MoviesInfoControllerTest {
                 .exchange()
                 .expectStatus().is5xxServerError();
     }
+
+    @Test
+    void indexesCreatedOnStartup() {
+        var indexedFields = template.indexOps(MovieInfo.class).getIndexInfo()
+                .flatMapIterable(IndexInfo::getIndexFields)
+                .map(IndexField::getKey)
+                .collectList()
+                .block();
+        assertThat(indexedFields).contains("year", "name", "cast", "release_date", "searchTerms", "searchName", "_fts");
+    }
 }
@@ -1,19 +1,31 @@
 package com.reactivespring.moviesinfoservice.controller;
 
 import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoBatchItem;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoEvent;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
 import com.reactivespring.moviesinfoservice.exceptionhandler.GlobalErrorHandler;
+import com.reactivespring.moviesinfoservice.filter.DeadlineWebFilter;
 import com.reactivespring.moviesinfoservice.service.MoviesInfoService;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEventBuffer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -51,6 +63,9 @@ class MoviesInfoControllerUnitTest {
     @MockBean
     private MoviesInfoService service;
 
+    @MockBean
+    private MovieInfoEventBuffer eventBuffer;
+
     @Test
     void getAllMoviesInfo() {
 
@@ -63,6 +78,134 @@ class MoviesInfoControllerUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfo_with_fields() {
+        when(service.getAll(new MovieInfoFilter(), Set.of("name", "year"))).thenReturn(Flux.just(
+                new MovieInfo(null, "Batman Begins", 2005, null, null)));
+        client.get()
+                .uri(MOVIES_INFO_URL + "?fields=name,year")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .json("[{\"name\":\"Batman Begins\",\"year\":2005}]", true);
+    }
+
+    @Test
+    void getAllMoviesInfo_unknown_field() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "?fields=name,budget")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllMoviesInfo_combined_filters() {
+        var filter = new MovieInfoFilter(2000, 2009, null, "Christian Bale", null, null, "-year", 10);
+        when(service.getAll(filter, null)).thenReturn(Flux.fromIterable(moviesInfos.subList(1, 3)));
+        client.get()
+                .uri(MOVIES_INFO_URL + "?yearFrom=2000&yearTo=2009&cast=Christian Bale&sort=-year&limit=10")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getAllMoviesInfo_release_date_range() {
+        var filter = new MovieInfoFilter(null, null, null, null, LocalDate.parse("2005-01-01"),
+                LocalDate.parse("2005-12-31"), null, null);
+        when(service.getAll(filter, null)).thenReturn(Flux.just(moviesInfos.get(0)));
+        client.get()
+                .uri(MOVIES_INFO_URL + "?releaseDateFrom=2005-01-01&releaseDateTo=2005-12-31")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getAllMoviesInfo_unindexed_combination() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "?name=Batman Begins&releaseDateFrom=2005-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "?yearFrom=2000&sort=name")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "?year=2005&yearTo=2009")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void batchGetMoviesInfo() {
+        when(service.getByIds(List.of("abc", "def"))).thenReturn(Flux.just(
+                MovieInfoBatchItem.found("abc", moviesInfos.get(2)),
+                MovieInfoBatchItem.notFound("def")));
+
+        client.post()
+                .uri(MOVIES_INFO_URL + "/batch-get")
+                .bodyValue(List.of("abc", "def"))
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(MovieInfoBatchItem.class)
+                .value(items -> {
+                    assertThat(items).extracting(MovieInfoBatchItem::getStatus).containsExactly(200, 404);
+                    assertEquals("Dark Knight Rises", items.get(0).getMovieInfo().getName());
+                    assertNull(items.get(1).getMovieInfo());
+                });
+    }
+
+    @Test
+    void batchGetMoviesInfo_invalid_ids() {
+        client.post()
+                .uri(MOVIES_INFO_URL + "/batch-get")
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.post()
+                .uri(MOVIES_INFO_URL + "/batch-get")
+                .bodyValue(List.of("abc", " "))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void searchMoviesInfo() {
+        when(service.search("bat", 20)).thenReturn(Flux.just(moviesInfos.get(0)));
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q=bat")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void searchMoviesInfo_limit_capped() {
+        when(service.search("dark knight", 100)).thenReturn(Flux.fromIterable(moviesInfos.subList(1, 3)));
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q=dark knight&limit=1000")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void searchMoviesInfo_without_q() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "/search?q= ")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void getMovieInfoById() {
         var expectedMovie = moviesInfos.get(2);
@@ -193,4 +336,84 @@ class MoviesInfoControllerUnitTest {
                 });
     }
 
+    @Test
+    void getMovieInfoStream_from() {
+        when(eventBuffer.replayFrom(2L)).thenReturn(Flux.just(
+                new MovieInfoEvent("e-2", 2, Instant.now(), MovieInfoEvent.Type.CREATED, moviesInfos.get(0))));
+
+        var events = client.get()
+                .uri(MOVIES_INFO_URL + "/stream?from=2")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals(2, event.getSequence());
+                    assertEquals("Batman Begins", event.getMovieInfo().getName());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getMovieInfoStream_last_event_id_reset() {
+        when(eventBuffer.replayAfter("e-7")).thenReturn(Flux.just(
+                new MovieInfoEvent("f-0", 0, Instant.now(), MovieInfoEvent.Type.RESET, null)));
+
+        var events = client.get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "e-7")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfoEvent>>() {
+                })
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals("f-0", event.id());
+                    assertEquals("reset", event.event());
+                    assertNull(event.data().getMovieInfo());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getMovieInfoStream_invalid_offset() {
+        when(eventBuffer.replayAfter("nope")).thenThrow(new IllegalArgumentException("Invalid event id : nope"));
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/stream?from=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .header("Last-Event-ID", "nope")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getMovieInfoById_deadline_exceeded() {
+        var movieInfoId = "abc";
+        when(service.getById(movieInfoId)).thenReturn(Mono.never());
+
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .header(DeadlineWebFilter.HEADER, "100")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void getMovieInfoById_deadline_already_spent() {
+        client.get()
+                .uri(MOVIES_INFO_URL + "/{id}", "abc")
+                .header(DeadlineWebFilter.HEADER, "0")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
 }
@@ -0,0 +1,44 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfoFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MovieInfoQueryShapesTest {
+
+    @Test
+    void check_acceptsIndexedCombinations() {
+        assertThatCode(() -> MovieInfoQueryShapes.check(
+                new MovieInfoFilter(2000, null, "Batman Begins", null, null, null, "-year", null)))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> MovieInfoQueryShapes.check(
+                new MovieInfoFilter(null, null, null, "Christian Bale", LocalDate.parse("2005-01-01"), null,
+                        "releaseDate", 10)))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> MovieInfoQueryShapes.check(new MovieInfoFilter()))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void check_rejectsUnindexedCombination() {
+        assertThatThrownBy(() -> MovieInfoQueryShapes.check(
+                new MovieInfoFilter(2000, 2009, null, null, LocalDate.parse("2005-01-01"), null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Unsupported filter combination : releaseDate,year");
+    }
+
+    @Test
+    void check_rejectsSortTheIndexDoesNotProvide() {
+        assertThatThrownBy(() -> MovieInfoQueryShapes.check(
+                new MovieInfoFilter(null, null, null, "Christian Bale", null, null, "name", null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot sort by name when filtering on cast, supported sorts are releaseDate,year");
+        assertThatThrownBy(() -> MovieInfoQueryShapes.check(
+                new MovieInfoFilter(null, null, null, null, null, null, "budget", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,225 @@
+package com.reactivespring.moviesinfoservice.service;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoSearchTerms;
+import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MoviesInfoServiceTest {
+
+    private final MovieInfoRepository repository = mock(MovieInfoRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MoviesInfoService service = new MoviesInfoService(repository, meterRegistry, true, 100,
+            Duration.ofMinutes(10));
+
+    private final MovieInfo batmanBegins = new MovieInfo("1", "Batman Begins", 2005,
+            List.of("Christian Bale", "Michael Caine"), LocalDate.parse("2005-06-15"));
+    private final MovieInfo batman = new MovieInfo("2", "Batman", 1989,
+            List.of("Michael Keaton", "Jack Nicholson"), LocalDate.parse("1989-06-23"));
+    private final MovieInfo theBatman = new MovieInfo("3", "The Batman", 2022,
+            List.of("Robert Pattinson", "Zo\u00eb Kravitz"), LocalDate.parse("2022-03-04"));
+    private final MovieInfo leon = new MovieInfo("4", "L\u00e9on", 1994,
+            List.of("Jean Reno", "Natalie Portman", "Batiste Sans"), LocalDate.parse("1994-09-14"));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "searchCandidates", 200);
+    }
+
+    @Test
+    void getById_readsThroughCache() {
+        when(repository.findById("1")).thenReturn(Mono.just(batmanBegins));
+
+        StepVerifier.create(service.getById("1")).expectNext(batmanBegins).verifyComplete();
+        StepVerifier.create(service.getById("1")).expectNext(batmanBegins).verifyComplete();
+
+        verify(repository, times(1)).findById("1");
+        assertThat(meterRegistry.get("movies.info.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void getById_concurrentMissesShareOneLookup() {
+        var lookup = Sinks.<MovieInfo>one();
+        when(repository.findById("1")).thenReturn(lookup.asMono());
+
+        var first = service.getById("1").toFuture();
+        var second = service.getById("1").toFuture();
+        lookup.tryEmitValue(batmanBegins);
+
+        assertThat(first.join()).isEqualTo(batmanBegins);
+        assertThat(second.join()).isEqualTo(batmanBegins);
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void getById_missingMovieInfoIsNotCached() {
+        when(repository.findById("9")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.getById("9")).verifyComplete();
+        StepVerifier.create(service.getById("9")).verifyComplete();
+
+        verify(repository, times(2)).findById("9");
+    }
+
+    @Test
+    void updateMovieInfo_invalidatesCachedMovieInfo() {
+        var renamed = new MovieInfo("1", "Batman Begins Again", 2005, batmanBegins.getCast(),
+                batmanBegins.getReleaseDate());
+        when(repository.findById("1"))
+                .thenReturn(Mono.just(batmanBegins))
+                .thenReturn(Mono.just(batmanBegins))
+                .thenReturn(Mono.just(renamed));
+        when(repository.save(isA(MovieInfo.class))).thenReturn(Mono.just(renamed));
+
+        StepVerifier.create(service.getById("1")).expectNext(batmanBegins).verifyComplete();
+        StepVerifier.create(service.updateMovieInfo(renamed, "1")).expectNext(renamed).verifyComplete();
+
+        StepVerifier.create(service.getById("1").map(MovieInfo::getName))
+                .expectNext("Batman Begins Again")
+                .verifyComplete();
+    }
+
+    @Test
+    void addMovieInfo_overExistingIdInvalidatesCachedMovieInfo() {
+        var replaced = new MovieInfo("1", "Batman Begins Again", 2005, batmanBegins.getCast(),
+                batmanBegins.getReleaseDate());
+        when(repository.findById("1"))
+                .thenReturn(Mono.just(batmanBegins))
+                .thenReturn(Mono.just(replaced));
+        when(repository.save(replaced)).thenReturn(Mono.just(replaced));
+
+        StepVerifier.create(service.getById("1")).expectNext(batmanBegins).verifyComplete();
+        StepVerifier.create(service.addMovieInfo(replaced)).expectNext(replaced).verifyComplete();
+
+        StepVerifier.create(service.getById("1").map(MovieInfo::getName))
+                .expectNext("Batman Begins Again")
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteMovieInfo_invalidatesCachedMovieInfo() {
+        when(repository.findById("1"))
+                .thenReturn(Mono.just(batmanBegins))
+                .thenReturn(Mono.just(batmanBegins))
+                .thenReturn(Mono.empty());
+        when(repository.deleteById("1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.getById("1")).expectNext(batmanBegins).verifyComplete();
+        StepVerifier.create(service.deleteMovieInfo("1")).verifyComplete();
+
+        StepVerifier.create(service.getById("1")).verifyComplete();
+    }
+
+    @Test
+    void getById_withoutCacheGoesToRepository() {
+        var uncached = new MoviesInfoService(repository, new SimpleMeterRegistry(), false, 100, Duration.ofMinutes(10));
+        when(repository.findById("1")).thenReturn(Mono.just(batmanBegins));
+
+        StepVerifier.create(uncached.getById("1")).expectNext(batmanBegins).verifyComplete();
+        StepVerifier.create(uncached.getById("1")).expectNext(batmanBegins).verifyComplete();
+
+        verify(repository, times(2)).findById("1");
+    }
+
+    @Test
+    void getByIds_oneQueryInRequestOrderWithNotFoundItems() {
+        when(repository.findAllById(Set.of("3", "1", "9"))).thenReturn(Flux.just(batmanBegins, theBatman));
+
+        StepVerifier.create(service.getByIds(List.of("3", "9", "1", "3"))
+                        .map(item -> item.getMovieInfoId() + ":" + item.getStatus()))
+                .expectNext("3:200", "9:404", "1:200", "3:200")
+                .verifyComplete();
+        verify(repository).findAllById(Set.of("3", "1", "9"));
+    }
+
+    @Test
+    void searchTerms_normalizeNamesAndCast() {
+        assertThat(MovieInfoSearchTerms.of(theBatman))
+                .containsExactly("the batman", "the", "batman", "robert pattinson", "robert", "pattinson",
+                        "zoe kravitz", "zoe", "kravitz");
+    }
+
+    @Test
+    void search_ranksExactNameThenPrefixThenCastThenLaterWords() {
+        when(repository.findBySearchNamePrefix("batman", 20)).thenReturn(Flux.just(batman, batmanBegins));
+        when(repository.findBySearchTermPrefix("batman", 200))
+                .thenReturn(Flux.just(theBatman, batmanBegins, batman));
+
+        StepVerifier.create(service.search("BATMAN", 20))
+                .expectNext(batman, batmanBegins, theBatman)
+                .verifyComplete();
+        verify(repository, never()).findByText("BATMAN", 20);
+    }
+
+    @Test
+    void search_castPrefixBeforeLaterWordOfName() {
+        when(repository.findBySearchNamePrefix("bat", 2)).thenReturn(Flux.just(batmanBegins));
+        when(repository.findBySearchTermPrefix("bat", 200))
+                .thenReturn(Flux.just(theBatman, leon, batmanBegins));
+
+        StepVerifier.create(service.search("bat", 2))
+                .expectNext(batmanBegins, leon)
+                .verifyComplete();
+    }
+
+    @Test
+    void search_severalWordsToppedUpFromTextIndex() {
+        when(repository.findBySearchNamePrefix("batman begins", 3)).thenReturn(Flux.just(batmanBegins));
+        when(repository.findBySearchTermPrefix("batman begins", 200)).thenReturn(Flux.just(batmanBegins));
+        when(repository.findByText("Batman Begins", 3)).thenReturn(Flux.just(batmanBegins, batman, theBatman));
+
+        StepVerifier.create(service.search("Batman Begins", 3))
+                .expectNext(batmanBegins, batman, theBatman)
+                .verifyComplete();
+    }
+
+    @Test
+    void search_nameMatchesKeptBeyondSearchCandidates() {
+        ReflectionTestUtils.setField(service, "searchCandidates", 2);
+        when(repository.findBySearchNamePrefix("bat", 3)).thenReturn(Flux.just(batman, batmanBegins));
+        // more term matches than candidates: the capped term query happens to miss both name matches
+        when(repository.findBySearchTermPrefix("bat", 2)).thenReturn(Flux.just(theBatman, leon));
+
+        StepVerifier.create(service.search("bat", 3))
+                .expectNext(batman, batmanBegins, leon)
+                .verifyComplete();
+    }
+
+    @Test
+    void search_enoughNameMatchesSkipTermQuery() {
+        when(repository.findBySearchNamePrefix("batman", 2)).thenReturn(Flux.just(batman, batmanBegins));
+
+        StepVerifier.create(service.search("batman", 2))
+                .expectNext(batman, batmanBegins)
+                .verifyComplete();
+        verify(repository, never()).findBySearchTermPrefix("batman", 200);
+    }
+
+    @Test
+    void search_nothingToMatch() {
+        StepVerifier.create(service.search("!!", 20))
+                .verifyComplete();
+        verify(repository, never()).findBySearchNamePrefix("", 20);
+        verify(repository, never()).findBySearchTermPrefix("", 200);
+    }
+}
@@ -0,0 +1,153 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import com.reactivespring.moviesinfoservice.domain.MovieInfo;
+import com.reactivespring.moviesinfoservice.domain.MovieInfoEvent;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MovieInfoEventBufferTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    @Test
+    void publish_numbersEventsAndEvictsOldestWhenFull() {
+        var buffer = new MovieInfoEventBuffer(2, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+        buffer.publish(movieInfo("2"));
+        buffer.publish(movieInfo("3"));
+
+        assertThat(buffer.size()).isEqualTo(2);
+        StepVerifier.create(buffer.replayRetained().map(event -> event.getSequence() + ":" + event.getMovieInfo().getMovieInfoId()))
+                .expectNext("2:2", "3:3")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_evictsExpiredEvents() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+        clock.advance(Duration.ofMinutes(11));
+        buffer.publish(movieInfo("2"));
+
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void replayFrom_replaysOnlyMissedEventsThenLive() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+        buffer.publish(movieInfo("2"));
+        buffer.publish(movieInfo("3"));
+
+        StepVerifier.create(buffer.replayFrom(3).map(MovieInfoEvent::getSequence))
+                .expectNext(3L)
+                .then(() -> buffer.publish(movieInfo("4")))
+                .expectNext(4L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayFrom_nextSequenceIsLiveOnly() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+
+        StepVerifier.create(buffer.replayFrom(2).map(MovieInfoEvent::getSequence))
+                .then(() -> buffer.publish(movieInfo("2")))
+                .expectNext(2L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayFrom_evictedOffsetResetsThenReplaysRetained() {
+        var buffer = new MovieInfoEventBuffer(2, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+        buffer.publish(movieInfo("2"));
+        buffer.publish(movieInfo("3"));
+
+        StepVerifier.create(buffer.replayFrom(1).map(event -> event.getSequence() + ":" + event.getType()))
+                .expectNext("1:RESET", "2:CREATED", "3:CREATED")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayFrom_futureOffsetResets() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+
+        StepVerifier.create(buffer.replayFrom(5).map(event -> event.getSequence() + ":" + event.getType()))
+                .expectNext("0:RESET", "1:CREATED")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayAfter_resumesAfterLastEventId() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+        buffer.publish(movieInfo("2"));
+        var lastEventId = buffer.replayRetained().blockFirst().getEventId();
+
+        StepVerifier.create(buffer.replayAfter(lastEventId).map(MovieInfoEvent::getSequence))
+                .expectNext(2L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayAfter_idFromAnotherEpochResets() {
+        var buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(10), clock);
+        buffer.publish(movieInfo("1"));
+
+        StepVerifier.create(buffer.replayAfter("previous-1").map(event -> event.getSequence() + ":" + event.getType()))
+                .expectNext("0:RESET", "1:CREATED")
+                .thenCancel()
+                .verify();
+        assertThatThrownBy(() -> buffer.replayAfter("7"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MovieInfo movieInfo(String id) {
+        return new MovieInfo(id, "Batman Begins", 2005, List.of("Christian Bale"), null);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
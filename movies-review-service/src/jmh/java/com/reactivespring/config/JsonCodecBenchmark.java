@@ -0,0 +1,77 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of the domain types with Boot's default mapper ({@code reflection}) and with
+ * the one configured by {@link JsonCodecConfig} ({@code blackbird}). Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({"reflection", "blackbird"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private Review review;
+    private ReviewEvent event;
+    private byte[] reviewJson;
+    private byte[] eventJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        var builder = Jackson2ObjectMapperBuilder.json();
+        if (mapper.equals("blackbird")) {
+            builder.modulesToInstall(new JsonCodecConfig().blackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        review = new Review("65a1f0c2e4b0a1b2c3d4e5f6", 1L, "Awesome Movie", 9.5, 3L);
+        event = new ReviewEvent("42", Instant.parse("2024-01-01T00:00:00Z"), ReviewEvent.Type.UPDATED, review, 42L);
+        reviewJson = objectMapper.writeValueAsBytes(review);
+        eventJson = objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] encodeReview() throws IOException {
+        return objectMapper.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public Review decodeReview() throws IOException {
+        return objectMapper.readValue(reviewJson, Review.class);
+    }
+
+    @Benchmark
+    public byte[] encodeReviewEvent() throws IOException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public ReviewEvent decodeReviewEvent() throws IOException {
+        return objectMapper.readValue(eventJson, ReviewEvent.class);
+    }
+}
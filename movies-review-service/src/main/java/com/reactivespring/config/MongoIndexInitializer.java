@@ -0,0 +1,145 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.Review;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the index declared on {@link Review} at startup: the compound {@code movieInfoId_reviewId_rating}
+ * on {@code movieInfoId}, {@code _id} and {@code rating}.
+ * <p>
+ * It then explains the lookup by movie, the keyset pages by movie and over all reviews sorted by id, and a page
+ * projected to {@code rating}, reports any planned as a collection scan and logs projected pages the index
+ * does not cover.
+ * <p>
+ * Index builds are logged with their duration, and long builds report their progress every
+ * {@code reviews.indexes.progress-interval}. {@code reviews.indexes.collscan-check} decides whether a collection
+ * scan only logs a warning ({@code warn}), stops the application ({@code fail}) or is not checked ({@code off}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer implements ApplicationRunner {
+
+    public enum CollscanCheck { OFF, WARN, FAIL }
+
+    private final ReactiveMongoTemplate template;
+
+    @Value("${reviews.indexes.collscan-check:warn}")
+    private CollscanCheck collscanCheck;
+
+    @Value("${reviews.indexes.progress-interval:5s}")
+    private Duration progressInterval;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ensureIndexes(Review.class);
+        if (collscanCheck == CollscanCheck.OFF) {
+            return;
+        }
+        var reviews = template.getCollectionName(Review.class);
+        var sortById = new Document("_id", 1);
+        var collectionScans = new ArrayList<String>();
+        verifyPlan("findReviewsByMovieInfoId", reviews, new Document("movieInfoId", 1L), null, null, collectionScans);
+        verifyPlan("findReviewsByMovieInfoId(Pageable)", reviews, new Document("movieInfoId", 1L), sortById, null,
+                collectionScans);
+        verifyPlan("findReviewsByMovieInfoIdAndReviewIdGreaterThan", reviews, new Document("movieInfoId", 1L)
+                .append("_id", new Document("$gt", new ObjectId())), sortById, null, collectionScans);
+        verifyPlan("findByReviewIdGreaterThan", reviews, new Document("_id", new Document("$gt", new ObjectId())),
+                sortById, null, collectionScans);
+        verifyPlan("findReviewPage(fields=rating)", reviews, new Document("movieInfoId", 1L), sortById,
+                new Document("_id", 1).append("rating", 1), collectionScans);
+        if (!collectionScans.isEmpty() && collscanCheck == CollscanCheck.FAIL) {
+            throw new IllegalStateException("Queries planned as collection scans : " + collectionScans);
+        }
+    }
+
+    private void ensureIndexes(Class<?> entityClass) {
+        var indexOps = template.indexOps(entityClass);
+        var resolver = new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext());
+        var collection = template.getCollectionName(entityClass);
+        var definitions = new ArrayList<IndexDefinition>();
+        resolver.resolveIndexFor(entityClass).forEach(definitions::add);
+        for (int i = 0; i < definitions.size(); i++) {
+            var definition = definitions.get(i);
+            log.info("Building index {}/{} on {} : {}", i + 1, definitions.size(), collection,
+                    definition.getIndexKeys());
+            var start = System.nanoTime();
+            var progress = Flux.interval(progressInterval)
+                    .concatMap(tick -> indexBuildProgress(collection))
+                    .subscribe(message -> log.info("Index build on {} in progress : {}", collection, message));
+            try {
+                var name = indexOps.ensureIndex(definition).block();
+                log.info("Index {} on {} ready in {} ms", name, collection,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            } finally {
+                progress.dispose();
+            }
+        }
+    }
+
+    /**
+     * Progress messages of the index builds currently running on the collection, as reported by {@code currentOp}.
+     */
+    private Flux<String> indexBuildProgress(String collection) {
+        var currentOp = new Document("currentOp", 1).append("command.createIndexes", collection);
+        return template.getMongoDatabaseFactory().getMongoDatabase("admin")
+                .flatMap(admin -> Mono.from(admin.runCommand(currentOp)))
+                .flatMapIterable(result -> result.getList("inprog", Document.class, List.of()))
+                .map(operation -> operation.getString("msg") != null ? operation.getString("msg")
+                        : String.valueOf(operation.get("progress")))
+                .onErrorResume(ex -> {
+                    log.debug("Cannot read index build progress : {}", ex.getMessage());
+                    return Flux.empty();
+                });
+    }
+
+    private void verifyPlan(String query, String collection, Document filter, Document sort, Document projection,
+                            List<String> collectionScans) {
+        var find = new Document("find", collection).append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        if (projection != null) {
+            find.append("projection", projection);
+        }
+        var explain = template.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .block();
+        var stages = new ArrayList<String>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan", Document.class), stages);
+        if (stages.contains("COLLSCAN")) {
+            log.warn("Query {} on {} is planned as a collection scan : {}", query, collection, stages);
+            collectionScans.add(query);
+        } else if (projection != null && stages.contains("FETCH")) {
+            log.info("Query {} on {} uses plan {} but is not covered by the index", query, collection, stages);
+        } else {
+            log.info("Query {} on {} uses plan {}", query, collection, stages);
+        }
+    }
+
+    private static void collectStages(Document plan, List<String> stages) {
+        if (plan == null) {
+            return;
+        }
+        stages.add(plan.getString("stage"));
+        collectStages(plan.get("inputStage", Document.class), stages);
+        for (var input : plan.getList("inputStages", Document.class, List.of())) {
+            collectStages(input, stages);
+        }
+    }
+}
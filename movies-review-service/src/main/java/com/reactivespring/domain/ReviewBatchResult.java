@@ -0,0 +1,26 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one line of a bulk review upload: the id of the saved review, or why the line was rejected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewBatchResult {
+
+    private Long line;
+    private String reviewId;
+    private String error;
+
+    public static ReviewBatchResult saved(long line, String reviewId) {
+        return new ReviewBatchResult(line, reviewId, null);
+    }
+
+    public static ReviewBatchResult failed(long line, String error) {
+        return new ReviewBatchResult(line, null, error);
+    }
+}
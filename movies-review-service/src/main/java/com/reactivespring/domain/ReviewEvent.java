@@ -0,0 +1,35 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+/**
+ * A change to a review, as streamed to subscribers and recorded in the capped event collection. A
+ * {@link Type#DELETED} event carries the review as it was before removal; {@code review} is null for the
+ * marker document written when the collection is created. {@code sequence} numbers the events in the order
+ * they were published.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewEvent {
+
+    @Id
+    private String eventId;
+    private Instant publishedAt;
+    private Type type;
+    private Review review;
+    private Long sequence;
+
+    public static ReviewEvent of(Type type, Review review) {
+        return new ReviewEvent(null, Instant.now(), type, review, null);
+    }
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,22 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Counts the changes to one movie's reviews; the review listing of the movie is unchanged for as long as
+ * {@code version} is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("reviewListVersions")
+public class ReviewListVersion {
+
+    @Id
+    private Long movieInfoId;
+    private long version;
+}
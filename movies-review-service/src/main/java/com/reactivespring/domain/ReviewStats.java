@@ -0,0 +1,26 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Running rating aggregates for one movie. {@code histogram} counts ratings per 0.5 wide bucket, keyed by
+ * bucket number ({@code floor(rating * 2)}) because MongoDB field names cannot contain dots.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("reviewStats")
+public class ReviewStats {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Map<String, Long> histogram;
+}
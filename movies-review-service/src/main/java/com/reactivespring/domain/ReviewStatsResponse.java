@@ -0,0 +1,23 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Rating aggregates as served to clients; {@code histogram} is keyed by the lower bound of each 0.5 bucket
+ * and {@code mean} is null while a movie has no rated reviews.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewStatsResponse {
+
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double mean;
+    private Map<String, Long> histogram;
+}
@@ -0,0 +1,9 @@
+package com.reactivespring.exception;
+
+public class ReviewConflictException extends RuntimeException {
+    private String message;
+    public ReviewConflictException(String s) {
+        super(s);
+        this.message=s;
+    }
+}
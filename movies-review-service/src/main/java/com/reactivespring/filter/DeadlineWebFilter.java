@@ -0,0 +1,61 @@
+package com.reactivespring.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Honours the remaining budget a caller forwards in the {@code X-Request-Timeout} header (milliseconds).
+ * <p>
+ * A request that arrives with no budget left is answered with 504 straight away. Otherwise the request is
+ * cancelled once the budget runs out, which also cancels the review reads it still has in flight. A review write
+ * that has started still finishes, along with its stats update and list version bump.
+ * <p>
+ * There is no default deadline: requests without the header, such as {@code /v1/reviews/stream}
+ * subscriptions and {@code /v1/reviews/batch} uploads, are never cut off.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var header = exchange.getRequest().getHeaders().getFirst(HEADER);
+        if (header == null) {
+            return chain.filter(exchange);
+        }
+        long budgetMillis;
+        try {
+            budgetMillis = Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring invalid {} header : {}", HEADER, header);
+            return chain.filter(exchange);
+        }
+        if (budgetMillis <= 0) {
+            log.warn("Deadline already exceeded for {}", exchange.getRequest().getPath());
+            return gatewayTimeout(exchange);
+        }
+        return chain.filter(exchange)
+                .timeout(Duration.ofMillis(budgetMillis), Mono.defer(() -> {
+                    log.warn("Deadline of {}ms exceeded for {}", budgetMillis, exchange.getRequest().getPath());
+                    return gatewayTimeout(exchange);
+                }));
+    }
+
+    private Mono<Void> gatewayTimeout(ServerWebExchange exchange) {
+        var response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.empty();
+        }
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return response.setComplete();
+    }
+}
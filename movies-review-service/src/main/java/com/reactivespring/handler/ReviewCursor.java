@@ -0,0 +1,34 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.exception.ReviewDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in a review listing: the last {@code reviewId} returned, scoped to the movie the
+ * listing was filtered by (null when unfiltered). Clients only see it as an opaque token.
+ */
+public record ReviewCursor(Long movieInfoId, String reviewId) {
+
+    private static final String SEPARATOR = ":";
+
+    public String encode() {
+        var key = (movieInfoId != null ? movieInfoId.toString() : "") + SEPARATOR + reviewId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReviewCursor decode(String token) {
+        try {
+            var key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separator = key.indexOf(SEPARATOR);
+            if (separator < 0 || separator == key.length() - 1) {
+                throw new ReviewDataException("Invalid cursor : " + token);
+            }
+            var movieInfoId = separator == 0 ? null : Long.valueOf(key.substring(0, separator));
+            return new ReviewCursor(movieInfoId, key.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("Invalid cursor : " + token);
+        }
+    }
+}
@@ -1,13 +1,28 @@
 package com.reactivespring.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewBatchResult;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.exception.ReviewConflictException;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.stats.ReviewStatsService;
+import com.reactivespring.stream.ReviewEventBus;
+import com.reactivespring.version.ReviewListVersionService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -15,8 +30,16 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,19 +47,147 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReviewHandler {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final Set<String> REVIEW_FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating", "version");
+
     private final ReviewReactiveRepository repository;
     private final Validator validator;
-    private final Sinks.Many<Review> reviewSink = Sinks.many().replay().all();
+    private final ReviewEventBus eventBus;
+    private final ObjectMapper objectMapper;
+    private final ReviewStatsService statsService;
+    private final ReviewListVersionService listVersions;
+
+    @Value("${reviews.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${reviews.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${reviews.batch.size:500}")
+    private int batchSize;
+
+    @Value("${reviews.batch.interval:100ms}")
+    private Duration batchInterval;
 
+    /**
+     * Creates a review. A review whose {@code reviewId} is already taken is rejected with 409 rather than replaced;
+     * changes to an existing review go through {@link #updateReview(ServerRequest)}.
+     */
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
-                .flatMap(repository::save)
-                .doOnNext(reviewSink::tryEmitNext)
+                .doOnNext(review -> review.setVersion(null))
+                .flatMap(review -> detached(repository.save(review)
+                        .onErrorMap(DuplicateKeyException.class, ex -> new ReviewConflictException(
+                                "Review " + review.getReviewId() + " already exists"))
+                        .flatMap(savedReview -> statsService.recordAdded(savedReview)
+                                .then(listVersions.bump(savedReview.getMovieInfoId()))
+                                .thenReturn(savedReview))
+                        .doOnNext(savedReview -> eventBus.publish(ReviewEvent.Type.CREATED, savedReview))))
                 .flatMap(savedReview -> ServerResponse.status(HttpStatus.CREATED)
                         .bodyValue(savedReview));
     }
 
+    /**
+     * Saves an NDJSON upload of reviews. Lines are read as they arrive, validated one by one and inserted in
+     * batches of up to {@code reviews.batch.size} lines or every {@code reviews.batch.interval}, so the upload
+     * is never held in memory as a whole. One result per non-blank line is streamed back, in upload order.
+     */
+    public Mono<ServerResponse> addReviewsBatch(ServerRequest request) {
+        var results = request.bodyToFlux(String.class)
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> parseLine(line.getT1() + 1, line.getT2()))
+                // fair mode stops reading the upload while an insert runs, so the uploader is back-pressured
+                .bufferTimeout(batchSize, batchInterval, true)
+                .concatMap(this::insertBatch);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, ReviewBatchResult.class);
+    }
+
+    private BatchLine parseLine(long line, String json) {
+        try {
+            var review = objectMapper.readValue(json, Review.class);
+            validate(review);
+            review.setVersion(null);
+            if (review.getReviewId() == null) {
+                // assigned up front so the reviews saved by a partially failed bulk insert are known
+                review.setReviewId(new ObjectId().toHexString());
+            }
+            return new BatchLine(line, review, null);
+        } catch (JsonProcessingException ex) {
+            return new BatchLine(line, null, "Invalid JSON : " + ex.getOriginalMessage());
+        } catch (ReviewDataException ex) {
+            return new BatchLine(line, null, ex.getMessage());
+        }
+    }
+
+    private Flux<ReviewBatchResult> insertBatch(List<BatchLine> lines) {
+        var valid = lines.stream().filter(BatchLine::isValid).toList();
+        return detached(insertValid(valid)).flatMapIterable(results -> {
+            var resultsByLine = new HashMap<Long, ReviewBatchResult>();
+            results.forEach(result -> resultsByLine.put(result.getLine(), result));
+            return lines.stream()
+                    .map(line -> line.isValid()
+                            ? resultsByLine.get(line.line())
+                            : ReviewBatchResult.failed(line.line(), line.error()))
+                    .toList();
+        });
+    }
+
+    /**
+     * Inserts the reviews with one ordered bulk insert. When a review is rejected (e.g. a duplicate id), the
+     * reviews before it are saved and the ones after it are inserted again in a new bulk insert.
+     */
+    private Mono<List<ReviewBatchResult>> insertValid(List<BatchLine> lines) {
+        if (lines.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return repository.insert(lines.stream().map(BatchLine::review).toList())
+                .collectList()
+                .flatMap(saved -> {
+                    eventBus.publishAll(ReviewEvent.Type.CREATED, saved);
+                    return statsService.recordAdded(saved).then(listVersions.bump(saved)).thenReturn(lines.stream()
+                            .map(line -> ReviewBatchResult.saved(line.line(), line.review().getReviewId()))
+                            .toList());
+                })
+                .onErrorResume(ex -> {
+                    var writeError = firstWriteError(ex);
+                    if (writeError == null) {
+                        log.error("Bulk insert of {} reviews failed : {}", lines.size(), ex.getMessage());
+                        return Mono.just(lines.stream()
+                                .map(line -> ReviewBatchResult.failed(line.line(), ex.getMessage()))
+                                .toList());
+                    }
+                    var failedIndex = writeError.getIndex();
+                    var saved = lines.subList(0, failedIndex);
+                    var savedReviews = saved.stream().map(BatchLine::review).toList();
+                    eventBus.publishAll(ReviewEvent.Type.CREATED, savedReviews);
+                    var results = new ArrayList<ReviewBatchResult>();
+                    saved.forEach(line -> results.add(ReviewBatchResult.saved(line.line(), line.review().getReviewId())));
+                    results.add(ReviewBatchResult.failed(lines.get(failedIndex).line(), writeError.getMessage()));
+                    return statsService.recordAdded(savedReviews)
+                            .then(listVersions.bump(savedReviews))
+                            .then(insertValid(lines.subList(failedIndex + 1, lines.size())))
+                            .map(rest -> {
+                                results.addAll(rest);
+                                return results;
+                            });
+                });
+    }
+
+    private static BulkWriteError firstWriteError(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException
+                    && !bulkWriteException.getWriteErrors().isEmpty()) {
+                return bulkWriteException.getWriteErrors().get(0);
+            }
+        }
+        return null;
+    }
+
     private void validate(Review review) {
         var violations = validator.validate(review);
         log.info("constraint validations : {}", violations);
@@ -48,57 +199,220 @@ public class ReviewHandler {
         }
     }
 
+    /**
+     * Lists reviews a page at a time, ordered by id. {@code limit} is capped at {@code reviews.page.max-size};
+     * when more reviews follow, the {@value #NEXT_CURSOR_HEADER} header carries the cursor to pass as
+     * {@code after} for the next page.
+     * <p>
+     * A movie's listing carries its review list version as a weak ETag; a matching {@code If-None-Match} is
+     * answered with 304 without reading the reviews.
+     * <p>
+     * {@code fields} (e.g. {@code fields=reviewId,rating}) limits the reviews to those fields, read with a
+     * projection; the id is always included as it is the cursor.
+     */
     public Mono<ServerResponse> getReviews(ServerRequest request) {
+        Long movieInfoId;
+        int limit;
+        ReviewCursor after;
+        Set<String> fields;
+        try {
+            movieInfoId = request.queryParam("movieInfoId").map(Long::valueOf).orElse(null);
+            limit = request.queryParam("limit").map(Integer::parseInt).orElse(defaultPageSize);
+            after = request.queryParam("after").map(ReviewCursor::decode).orElse(null);
+            fields = request.queryParam("fields").map(ReviewHandler::parseFields).orElse(null);
+        } catch (NumberFormatException ex) {
+            return Mono.error(new ReviewDataException("Invalid paging parameter : " + ex.getMessage()));
+        } catch (ReviewDataException ex) {
+            return Mono.error(ex);
+        }
+        if (limit < 1) {
+            return Mono.error(new ReviewDataException("limit must be positive"));
+        }
+        if (after != null && !Objects.equals(after.movieInfoId(), movieInfoId)) {
+            return Mono.error(new ReviewDataException("Cursor does not belong to this query"));
+        }
+        var pageSize = Math.min(limit, maxPageSize);
+        // one extra review tells whether there is a next page
+        var page = PageRequest.of(0, pageSize + 1, Sort.by("reviewId"));
 
-        var movieInfoId = request.queryParam("movieInfoId");
-        if (movieInfoId.isPresent()) {
-            var reviews = repository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
-            return buildReviewsResponse(reviews);
+        var reviews = Flux.defer(() -> {
+            if (fields != null) {
+                return repository.findReviewPage(movieInfoId, after == null ? null : after.reviewId(), pageSize + 1,
+                        fields);
+            }
+            if (movieInfoId != null) {
+                return after == null
+                        ? repository.findReviewsByMovieInfoId(movieInfoId, page)
+                        : repository.findReviewsByMovieInfoIdAndReviewIdGreaterThan(movieInfoId, after.reviewId(), page);
+            }
+            return after == null
+                    ? repository.findAllBy(page)
+                    : repository.findByReviewIdGreaterThan(after.reviewId(), page);
+        });
+        if (movieInfoId == null) {
+            return buildReviewsResponse(reviews, pageSize, null, ServerResponse.ok());
+        }
+        // the version is read before the reviews, so the listing is never older than its ETag claims
+        return listVersions.currentVersion(movieInfoId)
+                .map(ReviewListVersionService::listETag)
+                .flatMap(etag -> request.checkNotModified(etag)
+                        .switchIfEmpty(Mono.defer(() -> buildReviewsResponse(reviews, pageSize, movieInfoId,
+                                ServerResponse.ok().eTag(etag)))));
+    }
+
+    private static Set<String> parseFields(String fields) {
+        var parsed = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        var unknown = parsed.stream().filter(field -> !REVIEW_FIELDS.contains(field)).sorted().toList();
+        if (!unknown.isEmpty()) {
+            throw new ReviewDataException("Unknown fields : " + String.join(",", unknown));
         }
-        var reviews = repository.findAll();
-        return buildReviewsResponse(reviews);
+        return parsed;
     }
 
-    private Mono<ServerResponse> buildReviewsResponse(Flux<Review> reviews) {
-        return ServerResponse.ok().body(reviews, Review.class);
+    private Mono<ServerResponse> buildReviewsResponse(Flux<Review> reviews, int pageSize, Long movieInfoId,
+                                                      ServerResponse.BodyBuilder response) {
+        return reviews.collectList()
+                .flatMap(page -> {
+                    if (page.size() <= pageSize) {
+                        return response.body(Flux.fromIterable(page), Review.class);
+                    }
+                    var pageReviews = page.subList(0, pageSize);
+                    var next = new ReviewCursor(movieInfoId, pageReviews.get(pageSize - 1).getReviewId());
+                    return response
+                            .header(NEXT_CURSOR_HEADER, next.encode())
+                            .body(Flux.fromIterable(pageReviews), Review.class);
+                });
     }
 
+    /**
+     * Replaces the comment and rating of a review in one atomic update. When the body carries the
+     * {@code version} last read, the update only applies if nobody changed the review since, otherwise it
+     * fails with 409.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = repository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given reviewId")));
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(reqReview -> {
-                            System.out.println("Existing review: " + existingReview);
-                            review.setComment(reqReview.getComment());
-                            review.setRating(reqReview.getRating());
-                            return review;
+        return request.bodyToMono(Review.class)
+                .switchIfEmpty(Mono.error(new ReviewDataException("Review is required")))
+                .flatMap(reqReview -> detached(repository.updateReview(reviewId, reqReview.getVersion(),
+                                reqReview.getComment(), reqReview.getRating())
+                        .switchIfEmpty(Mono.defer(() -> missingOrConflict(reviewId, reqReview.getVersion())))
+                        .flatMap(previous -> {
+                            var updated = new Review(previous.getReviewId(), previous.getMovieInfoId(),
+                                    reqReview.getComment(), reqReview.getRating(),
+                                    previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+                            return statsService.recordUpdated(previous, updated)
+                                    .then(listVersions.bump(updated.getMovieInfoId()))
+                                    .thenReturn(updated);
                         })
-                        .flatMap(repository::save)
-                        .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
-                )
-                .switchIfEmpty(ServerResponse.notFound().build());
+                        .doOnNext(updated -> eventBus.publish(ReviewEvent.Type.UPDATED, updated))))
+                .flatMap(updated -> ServerResponse.ok()
+                        .eTag(ReviewListVersionService.reviewETag(updated))
+                        .bodyValue(updated));
+    }
+
+    /**
+     * Nothing matched the update: without an expected version the review does not exist, with one a second
+     * lookup tells a missing review from a stale version.
+     */
+    private Mono<Review> missingOrConflict(String reviewId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(new ReviewNotFoundException("Review not found for the given reviewId"));
+        }
+        return repository.existsById(reviewId)
+                .flatMap(exists -> Mono.error(exists
+                        ? new ReviewConflictException("Review " + reviewId + " was modified, version "
+                                + expectedVersion + " is out of date")
+                        : new ReviewNotFoundException("Review not found for the given reviewId")));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = repository.findById(reviewId);
-        return existingReview.flatMap(repository::delete)
+        return detached(repository.removeReview(reviewId)
+                        .flatMap(removed -> statsService.recordDeleted(removed)
+                                .then(listVersions.bump(removed.getMovieInfoId()))
+                                .then(Mono.fromRunnable(() -> eventBus.publish(ReviewEvent.Type.DELETED, removed)))))
+                .then(ServerResponse.noContent().build());
+    }
+
+    /**
+     * Runs a write together with the stats update, list version bump and event that follow it, without letting a
+     * cancelled request stop it halfway: a review written without its version bump would keep being answered
+     * with 304 for its old listing. Failures still reach the caller.
+     */
+    private static <T> Mono<T> detached(Mono<T> write) {
+        return Mono.fromFuture(() -> write.toFuture(), true);
+    }
+
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId");
+        if (movieInfoId.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId is required"));
+        }
+        try {
+            return statsService.getStats(Long.valueOf(movieInfoId.get()))
+                    .flatMap(stats -> ServerResponse.ok().bodyValue(stats));
+        } catch (NumberFormatException ex) {
+            return Mono.error(new ReviewDataException("Invalid movieInfoId : " + movieInfoId.get()));
+        }
+    }
+
+    public Mono<ServerResponse> rebuildReviewStats(ServerRequest request) {
+        return statsService.rebuild()
                 .then(ServerResponse.noContent().build());
     }
 
+    /**
+     * Tags the review with its document version as a weak ETag and answers a matching {@code If-None-Match}
+     * with 304.
+     */
     public Mono<ServerResponse> getReviewById(ServerRequest request) {
         var reviewId = request.pathVariable("id");
         return repository.findById(reviewId)
-                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
+                .flatMap(savedReview -> {
+                    var etag = ReviewListVersionService.reviewETag(savedReview);
+                    return request.checkNotModified(etag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(etag).bodyValue(savedReview)));
+                })
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
+    /**
+     * Streams review events as they happen: created, updated and deleted reviews. {@code last=N} first replays
+     * up to N recent events ({@code last=0} is live only), {@code since=<ISO-8601 instant>} replays the recent
+     * events published since then; without either parameter every retained event is replayed.
+     */
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+        Flux<ReviewEvent> reviews;
+        try {
+            var last = request.queryParam("last");
+            var since = request.queryParam("since");
+            if (last.isPresent()) {
+                var count = Integer.parseInt(last.get());
+                if (count < 0) {
+                    return Mono.error(new ReviewDataException("last must not be negative"));
+                }
+                reviews = count == 0 ? eventBus.live() : eventBus.replayLast(count);
+            } else if (since.isPresent()) {
+                reviews = eventBus.replaySince(Instant.parse(since.get()));
+            } else {
+                reviews = eventBus.replayLast(Integer.MAX_VALUE);
+            }
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            return Mono.error(new ReviewDataException("Invalid replay parameter : " + ex.getMessage()));
+        }
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSink.asFlux(), Review.class)
+                .body(reviews, ReviewEvent.class)
                 .log();
     }
+
+    private record BatchLine(long line, Review review, String error) {
+
+        boolean isValid() {
+            return review != null;
+        }
+    }
 }
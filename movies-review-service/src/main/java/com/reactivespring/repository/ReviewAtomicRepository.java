@@ -0,0 +1,23 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Mono;
+
+/**
+ * Single round-trip writes, so a review is never changed between reading and writing it.
+ */
+public interface ReviewAtomicRepository {
+
+    /**
+     * Sets the comment and rating of a review, provided it is still at {@code expectedVersion} when that is
+     * not null, and increments its version.
+     *
+     * @return the review as it was before the update, or empty when no review matched
+     */
+    Mono<Review> updateReview(String reviewId, Long expectedVersion, String comment, Double rating);
+
+    /**
+     * @return the removed review, or empty when there was none
+     */
+    Mono<Review> removeReview(String reviewId);
+}
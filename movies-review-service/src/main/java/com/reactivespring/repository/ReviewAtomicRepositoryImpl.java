@@ -0,0 +1,35 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+class ReviewAtomicRepositoryImpl implements ReviewAtomicRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Review> updateReview(String reviewId, Long expectedVersion, String comment, Double rating) {
+        var criteria = Criteria.where("reviewId").is(reviewId);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        // the template adds the $inc of the @Version field itself
+        var update = new Update()
+                .set("comment", comment)
+                .set("rating", rating);
+        return template.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(false),
+                Review.class);
+    }
+
+    @Override
+    public Mono<Review> removeReview(String reviewId) {
+        return template.findAndRemove(new Query(Criteria.where("reviewId").is(reviewId)), Review.class);
+    }
+}
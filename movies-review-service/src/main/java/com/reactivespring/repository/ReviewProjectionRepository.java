@@ -0,0 +1,18 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * Review queries that read only some of the fields, so the others never leave the database.
+ */
+public interface ReviewProjectionRepository {
+
+    /**
+     * Up to {@code limit} reviews ordered by id, optionally of one movie and after a given id, holding only
+     * {@code fields} and the id.
+     */
+    Flux<Review> findReviewPage(Long movieInfoId, String afterReviewId, int limit, Collection<String> fields);
+}
@@ -0,0 +1,34 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+class ReviewProjectionRepositoryImpl implements ReviewProjectionRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<Review> findReviewPage(Long movieInfoId, String afterReviewId, int limit, Collection<String> fields) {
+        var query = new Query()
+                .with(Sort.by("reviewId"))
+                .limit(limit);
+        if (movieInfoId != null) {
+            query.addCriteria(Criteria.where("movieInfoId").is(movieInfoId));
+        }
+        if (afterReviewId != null) {
+            query.addCriteria(Criteria.where("reviewId").gt(afterReviewId));
+        }
+        // the id is the paging cursor, and part of the movieInfoId index so it does not stop the index covering
+        query.fields().include("reviewId");
+        fields.forEach(field -> query.fields().include(field));
+        return template.find(query, Review.class);
+    }
+}
@@ -1,12 +1,22 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
 @Repository
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewAtomicRepository,
+        ReviewProjectionRepository {
 
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findReviewsByMovieInfoId(Long movieInfoId, Pageable pageable);
+
+    Flux<Review> findReviewsByMovieInfoIdAndReviewIdGreaterThan(Long movieInfoId, String reviewId, Pageable pageable);
+
+    Flux<Review> findAllBy(Pageable pageable);
+
+    Flux<Review> findByReviewIdGreaterThan(String reviewId, Pageable pageable);
 }
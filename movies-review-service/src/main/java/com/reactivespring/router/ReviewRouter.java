@@ -19,11 +19,14 @@ public class ReviewRouter {
                 .nest(path("/v1/reviews"), builder ->
                         builder
                                 .POST("", handler::addReview)
+                                .POST("/batch", handler::addReviewsBatch)
                                 .GET("", handler::getReviews)
+                                .GET("/stream", handler::getReviewsStream)
+                                .GET("/stats", handler::getReviewStats)
+                                .POST("/stats/rebuild", handler::rebuildReviewStats)
                                 .GET("/{id}", handler::getReviewById)
                                 .PUT("/{id}", handler::updateReview)
                                 .DELETE("/{id}", handler::deleteReview)
-                                .GET("/stream", handler::getReviewsStream)
                 )
                 .GET("/v1/helloworld", request -> ServerResponse.ok().bodyValue("helloworld"))
                 .build();
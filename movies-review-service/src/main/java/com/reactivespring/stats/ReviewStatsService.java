@@ -0,0 +1,181 @@
+package com.reactivespring.stats;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.domain.ReviewStatsResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps per-movie rating aggregates in the {@code reviewStats} collection up to date with atomic {@code $inc}
+ * updates as reviews are added, re-rated and deleted, so clients never need every review to show a rating.
+ * <p>
+ * Reviews without a rating are not counted. {@link #rebuild()} recomputes every aggregate from the reviews,
+ * e.g. to repair drift after a failed update.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewStatsService {
+
+    private static final String REVIEWS_COLLECTION = "review";
+    private static final String STATS_COLLECTION = "reviewStats";
+
+    private final ReactiveMongoTemplate template;
+
+    public Mono<Void> recordAdded(Review review) {
+        if (review.getRating() == null) {
+            return Mono.empty();
+        }
+        return increment(review.getMovieInfoId(), new Update()
+                .inc("count", 1)
+                .inc("sum", review.getRating())
+                .inc(histogramField(review.getRating()), 1));
+    }
+
+    /**
+     * Applies a bulk insert as one update per movie.
+     */
+    public Mono<Void> recordAdded(List<Review> reviews) {
+        var rated = reviews.stream()
+                .filter(review -> review.getRating() != null)
+                .collect(Collectors.groupingBy(Review::getMovieInfoId));
+        return Flux.fromIterable(rated.entrySet())
+                .concatMap(movie -> {
+                    var update = new Update()
+                            .inc("count", movie.getValue().size())
+                            .inc("sum", movie.getValue().stream().mapToDouble(Review::getRating).sum());
+                    movie.getValue().stream()
+                            .collect(Collectors.groupingBy(review -> histogramField(review.getRating()),
+                                    Collectors.counting()))
+                            .forEach(update::inc);
+                    return increment(movie.getKey(), update);
+                })
+                .then();
+    }
+
+    public Mono<Void> recordUpdated(Review before, Review after) {
+        if (Objects.equals(before.getRating(), after.getRating())) {
+            return Mono.empty();
+        }
+        if (before.getRating() == null) {
+            return recordAdded(after);
+        }
+        if (after.getRating() == null) {
+            return recordDeleted(before);
+        }
+        var update = new Update().inc("sum", after.getRating() - before.getRating());
+        var oldBucket = histogramField(before.getRating());
+        var newBucket = histogramField(after.getRating());
+        if (!oldBucket.equals(newBucket)) {
+            update.inc(oldBucket, -1).inc(newBucket, 1);
+        }
+        return increment(after.getMovieInfoId(), update);
+    }
+
+    public Mono<Void> recordDeleted(Review review) {
+        if (review.getRating() == null) {
+            return Mono.empty();
+        }
+        return increment(review.getMovieInfoId(), new Update()
+                .inc("count", -1)
+                .inc("sum", -review.getRating())
+                .inc(histogramField(review.getRating()), -1));
+    }
+
+    public Mono<ReviewStatsResponse> getStats(Long movieInfoId) {
+        return template.findById(movieInfoId, ReviewStats.class)
+                .defaultIfEmpty(new ReviewStats(movieInfoId, 0, 0, Map.of()))
+                .map(ReviewStatsService::toResponse);
+    }
+
+    /**
+     * Recomputes every movie's aggregates from the reviews with an aggregation pipeline whose {@code $out} stage
+     * replaces the stats collection in one step. Increments applied while the pipeline runs are lost; running it
+     * while writes are quiet avoids that.
+     */
+    public Mono<Void> rebuild() {
+        log.info("Rebuilding review stats");
+        var aggregation = Aggregation.newAggregation(
+                stage(new Document("$match", new Document("rating", new Document("$ne", null)))),
+                stage(new Document("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                        .append("bucket", new Document("$toString", new Document("$toInt",
+                                new Document("$floor", new Document("$multiply", List.of("$rating", 2)))))))
+                        .append("count", new Document("$sum", 1))
+                        .append("sum", new Document("$sum", "$rating")))),
+                stage(new Document("$group", new Document("_id", "$_id.movieInfoId")
+                        .append("count", new Document("$sum", "$count"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("histogram", new Document("$push", new Document("k", "$_id.bucket")
+                                .append("v", "$count"))))),
+                stage(new Document("$addFields", new Document("histogram",
+                        new Document("$arrayToObject", "$histogram")))),
+                stage(new Document("$out", STATS_COLLECTION)));
+        return template.aggregate(aggregation, REVIEWS_COLLECTION, Document.class)
+                .then()
+                .doOnSuccess(done -> log.info("Rebuilt review stats"));
+    }
+
+    /**
+     * Runs {@link #rebuild()} on {@code reviews.stats.rebuild-cron}, which is off by default.
+     */
+    @Scheduled(cron = "${reviews.stats.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        rebuild().subscribe(null, ex -> log.error("Review stats rebuild failed : {}", ex.getMessage(), ex));
+    }
+
+    /**
+     * A failed increment is logged rather than failing the review write it belongs to; the drift it leaves is
+     * repaired by the next rebuild.
+     */
+    private Mono<Void> increment(Long movieInfoId, Update update) {
+        return template.upsert(Query.query(Criteria.where("movieInfoId").is(movieInfoId)), update, ReviewStats.class)
+                .then()
+                .onErrorResume(ex -> {
+                    log.error("Failed to update review stats for movie {} : {}", movieInfoId, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    static String histogramField(double rating) {
+        return "histogram." + (long) Math.floor(rating * 2);
+    }
+
+    private static ReviewStatsResponse toResponse(ReviewStats stats) {
+        var histogram = new TreeMap<Long, Long>();
+        if (stats.getHistogram() != null) {
+            stats.getHistogram().forEach((bucket, count) -> {
+                if (count > 0) {
+                    histogram.put(Long.valueOf(bucket), count);
+                }
+            });
+        }
+        var buckets = new LinkedHashMap<String, Long>();
+        histogram.forEach((bucket, count) -> buckets.put(BigDecimal.valueOf(bucket * 0.5).toPlainString(), count));
+        var mean = stats.getCount() > 0 ? stats.getSum() / stats.getCount() : null;
+        return new ReviewStatsResponse(stats.getMovieInfoId(), stats.getCount(), stats.getSum(), mean, buckets);
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+}
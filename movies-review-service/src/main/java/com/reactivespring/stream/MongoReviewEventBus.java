@@ -0,0 +1,234 @@
+package com.reactivespring.stream;
+
+import com.mongodb.MongoCommandException;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReviewEventBus} shared by every instance: review events are appended to a capped MongoDB collection
+ * and each subscriber follows it with a tailable cursor, so a subscriber sees reviews changed by any instance.
+ * <p>
+ * Publishing only queues the event; queued events are written in batches of up to {@code batch-size} or
+ * every {@code batch-interval}, whichever comes first. Events that do not fit in the queue are dropped and
+ * counted, as are failed writes. The capped collection bounds how far back a subscriber can replay.
+ * <p>
+ * Each batch reserves a range of event sequence numbers from a counter document in the
+ * {@code <collection>Sequence} collection before it is written, so subscribers resume by sequence number
+ * instead of comparing the clocks of the instances that published the events.
+ * <p>
+ * Creating the collection is retried with backoff up to {@code setup-retry.max-attempts} times. A setup that
+ * still fails is not remembered: the next write or subscriber tries again. Should the writer itself fail, it
+ * is logged and restarted, and the events queued meanwhile are kept.
+ */
+@Component
+@ConditionalOnProperty(name = "reviews.event-bus.type", havingValue = "mongo")
+@Slf4j
+public class MongoReviewEventBus implements ReviewEventBus {
+
+    private final ReactiveMongoTemplate template;
+    private final String collection;
+    private final String sequenceCollection;
+    private final Mono<Boolean> collectionReady;
+    private final Sinks.Many<ReviewEvent> pending;
+    private final int maxBatchSize;
+    private final Duration batchInterval;
+    private final Duration restartDelay;
+    private volatile boolean closed;
+
+    private final Counter dropped;
+    private final Counter failed;
+    private final DistributionSummary batchSize;
+
+    public MongoReviewEventBus(ReactiveMongoTemplate template,
+                               MeterRegistry meterRegistry,
+                               @Value("${reviews.event-bus.mongo.collection:reviewEvents}") String collection,
+                               @Value("${reviews.event-bus.mongo.capped-size:16MB}") DataSize cappedSize,
+                               @Value("${reviews.event-bus.mongo.capped-max-documents:10000}") long cappedMaxDocuments,
+                               @Value("${reviews.event-bus.mongo.batch-size:100}") int maxBatchSize,
+                               @Value("${reviews.event-bus.mongo.batch-interval:50ms}") Duration batchInterval,
+                               @Value("${reviews.event-bus.mongo.max-pending:10000}") int maxPending,
+                               @Value("${reviews.event-bus.mongo.setup-retry.max-attempts:5}") long setupMaxAttempts,
+                               @Value("${reviews.event-bus.mongo.setup-retry.min-backoff:200ms}") Duration setupMinBackoff) {
+        this.template = template;
+        this.collection = collection;
+        this.sequenceCollection = collection + "Sequence";
+        this.maxBatchSize = maxBatchSize;
+        this.batchInterval = batchInterval;
+        this.restartDelay = setupMinBackoff;
+        this.dropped = Counter.builder("reviews.events.write.failures")
+                .tag("reason", "queue-full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("reviews.events.write.failures")
+                .tag("reason", "write-error")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("reviews.events.write.batch.size")
+                .register(meterRegistry);
+        // only a successful setup is cached; a failed one is tried again by the next subscriber
+        this.collectionReady = createCollection(cappedSize, cappedMaxDocuments)
+                .thenReturn(true)
+                .retryWhen(Retry.backoff(setupMaxAttempts, setupMinBackoff)
+                        .maxBackoff(Duration.ofSeconds(10))
+                        .doBeforeRetry(signal -> log.warn("Creating review event collection {} failed, retrying : {}",
+                                collection, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .cacheInvalidateIf(ready -> false);
+        // multicast without auto-cancel keeps queued events for the next subscriber when the writer restarts
+        this.pending = Sinks.many().multicast().onBackpressureBuffer(maxPending, false);
+        startWriter();
+    }
+
+    @Override
+    public synchronized void publish(ReviewEvent.Type type, Review review) {
+        if (pending.tryEmitNext(ReviewEvent.of(type, review)).isFailure()) {
+            log.warn("Review event queue is full, dropping event for review {}", review.getReviewId());
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public Flux<ReviewEvent> live() {
+        return latestEvent(0)
+                .flatMapMany(anchor -> tailFrom(anchor)
+                        .filter(event -> !event.getEventId().equals(anchor.getEventId())));
+    }
+
+    @Override
+    public Flux<ReviewEvent> replayLast(int count) {
+        if (count == 0) {
+            return live();
+        }
+        // fewer than count events: replay from the marker written at creation, i.e. everything retained
+        return latestEvent(count - 1)
+                .switchIfEmpty(Mono.defer(() -> template.findOne(naturalOrder(Sort.Direction.ASC),
+                        ReviewEvent.class, collection)))
+                .flatMapMany(this::tailFrom);
+    }
+
+    @Override
+    public Flux<ReviewEvent> replaySince(Instant since) {
+        return collectionReady
+                .thenMany(template.tail(new Query(Criteria.where("publishedAt").gte(since)), ReviewEvent.class,
+                        collection))
+                .filter(event -> event.getReview() != null);
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        // completing the queue flushes the last partial batch
+        pending.tryEmitComplete();
+    }
+
+    private void startWriter() {
+        pending.asFlux()
+                // fair mode keeps events in the pending queue while a write runs; its max-pending bound applies
+                .bufferTimeout(maxBatchSize, batchInterval, true)
+                .concatMap(this::write)
+                .subscribe(null, ex -> {
+                    log.error("Review event writer failed, restarting : {}", ex.getMessage());
+                    if (!closed) {
+                        Mono.delay(restartDelay).subscribe(tick -> startWriter());
+                    }
+                });
+    }
+
+    /**
+     * Follows the collection starting at {@code anchor}, with the cursor's query selecting the anchor and the
+     * events numbered after it, so the server skips the older ones; this still holds once the anchor itself has
+     * been overwritten. An anchor without a sequence number, written before they were kept, starts at the first
+     * numbered event. A cursor the server closes because nothing matched yet is opened again after the last
+     * event seen.
+     */
+    private Flux<ReviewEvent> tailFrom(ReviewEvent anchor) {
+        var next = new AtomicLong(anchor.getSequence() != null ? anchor.getSequence() : 0L);
+        return Flux.defer(() -> template.tail(new Query(Criteria.where("sequence").gte(next.get())),
+                        ReviewEvent.class, collection))
+                .doOnNext(event -> next.accumulateAndGet(event.getSequence() + 1, Math::max))
+                .repeatWhen(closed -> closed.delayElements(restartDelay))
+                .filter(event -> event.getReview() != null);
+    }
+
+    private Mono<ReviewEvent> latestEvent(int skip) {
+        return collectionReady.then(Mono.defer(() -> template.findOne(naturalOrder(Sort.Direction.DESC).skip(skip),
+                ReviewEvent.class, collection)));
+    }
+
+    private static Query naturalOrder(Sort.Direction direction) {
+        return new Query().with(Sort.by(direction, "$natural")).limit(1);
+    }
+
+    private Mono<Void> write(List<ReviewEvent> batch) {
+        batchSize.record(batch.size());
+        return collectionReady
+                .then(reserveSequences(batch.size()))
+                .flatMap(first -> {
+                    for (var i = 0; i < batch.size(); i++) {
+                        batch.get(i).setSequence(first + i);
+                    }
+                    return template.insert(batch, collection).then();
+                })
+                .onErrorResume(ex -> {
+                    log.error("Failed to write {} review events : {}", batch.size(), ex.getMessage());
+                    failed.increment(batch.size());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Reserves {@code count} consecutive sequence numbers, returning the first.
+     */
+    private Mono<Long> reserveSequences(int count) {
+        return template.findAndModify(new Query(Criteria.where("_id").is(collection)),
+                        new Update().inc("value", (long) count),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, sequenceCollection)
+                .map(counter -> counter.getLong("value") - count + 1);
+    }
+
+    /**
+     * Creates the capped collection with a marker document, as a tailable cursor on an empty collection
+     * is closed by the server straight away. Another instance creating it concurrently is fine.
+     */
+    private Mono<Void> createCollection(DataSize cappedSize, long cappedMaxDocuments) {
+        return template.collectionExists(collection)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>empty()
+                        : template.createCollection(collection, CollectionOptions.empty()
+                                        .capped()
+                                        .size(cappedSize.toBytes())
+                                        .maxDocuments(cappedMaxDocuments))
+                                .then(template.insert(new ReviewEvent(null, Instant.now(), null, null, 0L), collection))
+                                .then()
+                                .onErrorResume(MongoCommandException.class, ex -> {
+                                    log.info("Review event collection {} already created : {}", collection,
+                                            ex.getMessage());
+                                    return Mono.empty();
+                                }));
+    }
+}
@@ -0,0 +1,38 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Carries review changes to {@code /v1/reviews/stream} subscribers.
+ * <p>
+ * Selected with {@code reviews.event-bus.type}: {@code memory} (the default) only reaches subscribers of the
+ * same instance, {@code mongo} shares events between all instances through a capped collection.
+ */
+public interface ReviewEventBus {
+
+    void publish(ReviewEvent.Type type, Review review);
+
+    default void publishAll(ReviewEvent.Type type, List<Review> reviews) {
+        reviews.forEach(review -> publish(type, review));
+    }
+
+    /**
+     * Live events only.
+     */
+    Flux<ReviewEvent> live();
+
+    /**
+     * The last {@code count} retained events, followed by live ones.
+     */
+    Flux<ReviewEvent> replayLast(int count);
+
+    /**
+     * The retained events published at or after {@code since}, followed by live ones.
+     */
+    Flux<ReviewEvent> replaySince(Instant since);
+}
@@ -0,0 +1,161 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * In-memory {@link ReviewEventBus}: fans review events out to the subscribers of this instance and keeps a bounded window of recent
+ * events for new subscribers to catch up on.
+ * <p>
+ * The window is a ring buffer holding at most {@code maxCount} events, none older than {@code maxAge}.
+ * Live delivery is best effort: a subscriber that cannot keep up has events dropped instead of holding
+ * them in memory for it.
+ */
+@Component
+@ConditionalOnProperty(name = "reviews.event-bus.type", havingValue = "memory", matchIfMissing = true)
+public class ReviewReplayBuffer implements ReviewEventBus {
+
+    private final int maxCount;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private final Deque<Entry> ring = new ArrayDeque<>();
+    private final Sinks.Many<Entry> live = Sinks.many().multicast().directBestEffort();
+    private long sequence;
+
+    private final Counter evictedByCount;
+    private final Counter evictedByAge;
+
+    @Autowired
+    public ReviewReplayBuffer(@Value("${reviews.stream.replay.max-count:1000}") int maxCount,
+                              @Value("${reviews.stream.replay.max-age:10m}") Duration maxAge,
+                              MeterRegistry meterRegistry) {
+        this(maxCount, maxAge, meterRegistry, Clock.systemUTC());
+    }
+
+    ReviewReplayBuffer(int maxCount, Duration maxAge, MeterRegistry meterRegistry, Clock clock) {
+        this.maxCount = maxCount;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        Gauge.builder("reviews.stream.replay.size", this, ReviewReplayBuffer::size)
+                .register(meterRegistry);
+        Gauge.builder("reviews.stream.replay.capacity", () -> maxCount)
+                .register(meterRegistry);
+        Gauge.builder("reviews.stream.subscribers", live, Sinks.Many::currentSubscriberCount)
+                .register(meterRegistry);
+        this.evictedByCount = Counter.builder("reviews.stream.replay.evictions")
+                .tag("reason", "count")
+                .register(meterRegistry);
+        this.evictedByAge = Counter.builder("reviews.stream.replay.evictions")
+                .tag("reason", "age")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void publish(ReviewEvent.Type type, Review review) {
+        evictExpired();
+        sequence++;
+        var entry = new Entry(sequence, new ReviewEvent(String.valueOf(sequence), clock.instant(), type, review,
+                sequence));
+        if (maxCount > 0) {
+            if (ring.size() >= maxCount) {
+                ring.removeFirst();
+                evictedByCount.increment();
+            }
+            ring.addLast(entry);
+        }
+        // emitted under the lock so a subscriber's snapshot and its live feed never overlap or leave a gap
+        live.tryEmitNext(entry);
+    }
+
+    @Override
+    public synchronized void publishAll(ReviewEvent.Type type, List<Review> reviews) {
+        reviews.forEach(review -> publish(type, review));
+    }
+
+    @Override
+    public Flux<ReviewEvent> live() {
+        return subscribe(0, null);
+    }
+
+    @Override
+    public Flux<ReviewEvent> replayLast(int count) {
+        return subscribe(count, null);
+    }
+
+    @Override
+    public Flux<ReviewEvent> replaySince(Instant since) {
+        return subscribe(Integer.MAX_VALUE, since);
+    }
+
+    public synchronized int size() {
+        evictExpired();
+        return ring.size();
+    }
+
+    private Flux<ReviewEvent> subscribe(int count, Instant since) {
+        return Flux.defer(() -> {
+            // connect to the live feed before taking the snapshot; the publish operator queues what arrives
+            // meanwhile (up to its prefetch) and entries already in the snapshot are filtered out by sequence
+            var feed = live.asFlux().publish();
+            var connection = feed.connect();
+            List<Entry> snapshot;
+            long lastReplayed;
+            synchronized (this) {
+                snapshot = snapshot(count, since);
+                lastReplayed = sequence;
+            }
+            return Flux.concat(Flux.fromIterable(snapshot), feed.filter(entry -> entry.sequence() > lastReplayed))
+                    .map(Entry::event)
+                    .doFinally(signal -> connection.dispose());
+        });
+    }
+
+    private List<Entry> snapshot(int count, Instant since) {
+        evictExpired();
+        var selected = new ArrayList<Entry>();
+        var iterator = ring.descendingIterator();
+        while (iterator.hasNext() && selected.size() < count) {
+            var entry = iterator.next();
+            if (since != null && entry.publishedAt().isBefore(since)) {
+                break;
+            }
+            selected.add(entry);
+        }
+        Collections.reverse(selected);
+        return selected;
+    }
+
+    private void evictExpired() {
+        var oldestAllowed = clock.instant().minus(maxAge);
+        while (!ring.isEmpty() && ring.peekFirst().publishedAt().isBefore(oldestAllowed)) {
+            ring.removeFirst();
+            evictedByAge.increment();
+        }
+    }
+
+    private record Entry(long sequence, ReviewEvent event) {
+
+        Instant publishedAt() {
+            return event.getPublishedAt();
+        }
+    }
+}
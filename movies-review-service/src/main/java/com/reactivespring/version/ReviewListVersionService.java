@@ -0,0 +1,60 @@
+package com.reactivespring.version;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewListVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Keeps a per-movie change counter in the {@code reviewListVersions} collection, used as the ETag of the
+ * movie's review listing so a conditional request is answered from one small document instead of the reviews.
+ * <p>
+ * The counter is bumped after the reviews are written and read before they are, so a listing is never tagged
+ * with a version newer than its content. A failed bump fails the request that made the write.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReviewListVersionService {
+
+    private final ReactiveMongoTemplate template;
+
+    public Mono<Long> currentVersion(Long movieInfoId) {
+        return template.findById(movieInfoId, ReviewListVersion.class)
+                .map(ReviewListVersion::getVersion)
+                .defaultIfEmpty(0L);
+    }
+
+    public Mono<Void> bump(Long movieInfoId) {
+        return template.upsert(Query.query(Criteria.where("movieInfoId").is(movieInfoId)),
+                        new Update().inc("version", 1), ReviewListVersion.class)
+                .then();
+    }
+
+    /**
+     * Bumps every movie of a bulk insert once.
+     */
+    public Mono<Void> bump(List<Review> reviews) {
+        return Flux.fromStream(reviews.stream().map(Review::getMovieInfoId).distinct())
+                .concatMap(this::bump)
+                .then();
+    }
+
+    public static String listETag(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Reviews saved before they had a version count as version 0.
+     */
+    public static String reviewETag(Review review) {
+        return "W/\"" + (review.getVersion() != null ? review.getVersion() : 0) + "\"";
+    }
+}
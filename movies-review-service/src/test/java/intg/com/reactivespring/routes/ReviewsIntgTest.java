@@ -1,6 +1,7 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,8 +9,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
 import java.util.List;
 
@@ -29,6 +35,9 @@ class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository repository;
 
+    @Autowired
+    ReactiveMongoTemplate template;
+
     @BeforeEach
     void setUp() {
         var reviewList = List.of(
@@ -64,6 +73,28 @@ class ReviewsIntgTest {
                 );
     }
 
+    @Test
+    void addReview_existing_reviewId() {
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+
+        client
+                .post()
+                .uri(MOVIES_REVIEW_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus().isCreated();
+        client
+                .post()
+                .uri(MOVIES_REVIEW_URL)
+                .bodyValue(new Review("abc", 1L, "Replaced Movie", 2.0))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        StepVerifier.create(repository.findById("abc"))
+                .assertNext(saved -> assertThat(saved.getComment()).isEqualTo("Awesome Movie"))
+                .verifyComplete();
+    }
+
     @Test
     void getAllReviews() {
         client
@@ -79,6 +110,35 @@ class ReviewsIntgTest {
                 );
     }
 
+    @Test
+    void getReviewsByMovieInfoId_paged() {
+        var firstPage = client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId=1&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult();
+        var cursor = firstPage.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        assertThat(cursor).isNotNull();
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId=1&limit=1&after={after}", cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .consumeWith(response -> {
+                            var reviews = response.getResponseBody();
+                            assertThat(reviews).hasSize(1);
+                            assertThat(reviews.get(0).getReviewId())
+                                    .isNotEqualTo(firstPage.getResponseBody().get(0).getReviewId());
+                        }
+                );
+    }
+
     @Test
     void getReviewByMovieInfoId() {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
@@ -133,6 +193,41 @@ class ReviewsIntgTest {
                 );
     }
 
+    @Test
+    void updateReview_stale_version() {
+        var review = repository.save(new Review(null, 3L, "Good Movie", 7.0)).block();
+        var update = new Review(null, 3L, "Great Movie", 8.0, review.getVersion());
+
+        client
+                .put()
+                .uri(MOVIES_REVIEW_URL + "/{id}", review.getReviewId())
+                .bodyValue(update)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Review.class)
+                .consumeWith(response -> assertThat(response.getResponseBody().getVersion())
+                        .isEqualTo(review.getVersion() + 1));
+
+        // the same version again lost the race to the first update
+        client
+                .put()
+                .uri(MOVIES_REVIEW_URL + "/{id}", review.getReviewId())
+                .bodyValue(update)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        assertThat(repository.findById(review.getReviewId()).block().getComment()).isEqualTo("Great Movie");
+    }
+
+    @Test
+    void updateReview_not_found() {
+        client
+                .put()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "missing")
+                .bodyValue(new Review(null, 3L, "Great Movie", 8.0, 0L))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void deleteReview() {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
@@ -152,4 +247,65 @@ class ReviewsIntgTest {
                 .expectStatus().isNoContent()
                 .expectBody(Review.class);
     }
+
+    @Test
+    void getReviewsByMovieInfoId_etag_changes_on_add() {
+        var etag = client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        client
+                .post()
+                .uri(MOVIES_REVIEW_URL)
+                .bodyValue(new Review(null, 1L, "Good Movie", 7.0))
+                .exchange()
+                .expectStatus().isCreated();
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewsByMovieInfoId_with_fields() {
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}&fields=rating", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .value(reviews -> assertThat(reviews).allSatisfy(review -> {
+                    assertThat(review.getReviewId()).isNotNull();
+                    assertThat(review.getRating()).isEqualTo(9.0);
+                    assertThat(review.getComment()).isNull();
+                    assertThat(review.getMovieInfoId()).isNull();
+                }));
+    }
+
+    @Test
+    void indexesCreatedOnStartup() {
+        var indexNames = template.indexOps(Review.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block();
+        assertThat(indexNames).contains("movieInfoId_reviewId_rating");
+    }
 }
@@ -0,0 +1,66 @@
+package com.reactivespring.stats;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReviewStatsServiceIntgTest {
+
+    @Autowired
+    ReviewStatsService statsService;
+
+    @Autowired
+    ReviewReactiveRepository repository;
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll().block();
+        template.dropCollection(ReviewStats.class).block();
+    }
+
+    @Test
+    void incrementalUpdates() {
+        var first = new Review("1", 1L, "Awesome Movie", 9.0);
+        var second = new Review("2", 1L, "Excellent Movie", 8.0);
+        statsService.recordAdded(List.of(first, second)).block();
+        statsService.recordUpdated(second, new Review("2", 1L, "Excellent Movie", 7.5)).block();
+        statsService.recordDeleted(first).block();
+
+        var stats = statsService.getStats(1L).block();
+        assertThat(stats.getCount()).isEqualTo(1);
+        assertThat(stats.getMean()).isEqualTo(7.5);
+        assertThat(stats.getHistogram()).isEqualTo(Map.of("7.5", 1L));
+    }
+
+    @Test
+    void rebuild() {
+        repository.saveAll(List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Excellent Movie", 8.0),
+                new Review(null, 2L, "Good Movie", 7.0)
+        )).blockLast();
+
+        statsService.rebuild().block();
+
+        var stats = statsService.getStats(1L).block();
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getSum()).isEqualTo(17.0);
+        assertThat(stats.getHistogram()).isEqualTo(Map.of("8.0", 1L, "9.0", 1L));
+    }
+}
@@ -0,0 +1,37 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "reviews.event-bus.type=mongo",
+        "reviews.event-bus.mongo.collection=reviewEventsIntg"
+})
+@ActiveProfiles("test")
+class MongoReviewEventBusIntgTest {
+
+    @Autowired
+    ReviewEventBus eventBus;
+
+    @Test
+    void replayLast_thenLive() {
+        assertThat(eventBus).isInstanceOf(MongoReviewEventBus.class);
+        eventBus.publish(ReviewEvent.Type.CREATED, new Review("1", 1L, "Awesome Movie", 9.0));
+
+        StepVerifier.create(eventBus.replayLast(1).map(event -> event.getReview().getComment()))
+                .expectNext("Awesome Movie")
+                .then(() -> eventBus.publish(ReviewEvent.Type.CREATED, new Review("2", 1L, "Excellent Movie", 8.0)))
+                .expectNext("Excellent Movie")
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+}
@@ -1,29 +1,55 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewBatchResult;
+import com.reactivespring.domain.ReviewStatsResponse;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
+import com.reactivespring.filter.DeadlineWebFilter;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stats.ReviewStatsService;
+import com.reactivespring.stream.ReviewReplayBuffer;
+import com.reactivespring.version.ReviewListVersionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, DeadlineWebFilter.class,
+        ReviewReplayBuffer.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 class ReviewsUnitTest {
 
@@ -37,9 +63,29 @@ class ReviewsUnitTest {
     @MockBean
     private ReviewReactiveRepository repository;
 
+    @MockBean
+    private ReviewStatsService statsService;
+
+    @MockBean
+    private ReviewListVersionService listVersions;
+
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private ReviewHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        when(statsService.recordAdded(isA(Review.class))).thenReturn(Mono.empty());
+        when(statsService.recordAdded(anyList())).thenReturn(Mono.empty());
+        when(statsService.recordUpdated(isA(Review.class), isA(Review.class))).thenReturn(Mono.empty());
+        when(statsService.recordDeleted(isA(Review.class))).thenReturn(Mono.empty());
+        when(listVersions.bump(isA(Long.class))).thenReturn(Mono.empty());
+        when(listVersions.bump(anyList())).thenReturn(Mono.empty());
+        when(listVersions.currentVersion(isA(Long.class))).thenReturn(Mono.just(5L));
+    }
+
     @Test
     void addReview() {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
@@ -77,9 +123,81 @@ class ReviewsUnitTest {
                 .isEqualTo("rating.movieInfoId : must not be null,rating.negative : please pass a non-negative value");
     }
 
+    @Test
+    void addReviewsBatch() {
+        when(repository.insert(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0)));
+        var body = """
+                {"movieInfoId": 1, "comment": "Awesome Movie", "rating": 9.0}
+                {"movieInfoId": null, "comment": "Awesome Movie", "rating": 9.0}
+                not json
+                {"reviewId": "abc", "movieInfoId": 2, "comment": "Excellent Movie", "rating": 8.0}
+                """;
+
+        var results = client
+                .post()
+                .uri(MOVIES_REVIEW_URL + "/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ReviewBatchResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(results).extracting(ReviewBatchResult::getLine).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(results.get(0).getReviewId()).isNotNull();
+        assertThat(results.get(1).getError()).isEqualTo("rating.movieInfoId : must not be null");
+        assertThat(results.get(2).getError()).startsWith("Invalid JSON");
+        assertThat(results.get(3).getReviewId()).isEqualTo("abc");
+    }
+
+    @Test
+    void addReviewsBatch_trickling_upload_with_slow_inserts() {
+        when(repository.insert(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                .delaySubscription(Duration.ofMillis(50)));
+        var lines = Flux.range(1, 30)
+                .delayElements(Duration.ofMillis(2))
+                .map(i -> "{\"movieInfoId\": 1, \"comment\": \"Awesome Movie\", \"rating\": 9.0}\n");
+        var restore = handlerBatchSettings(2, Duration.ofMillis(1));
+
+        try {
+            var results = client
+                    .post()
+                    .uri(MOVIES_REVIEW_URL + "/batch")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(lines, String.class)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(ReviewBatchResult.class)
+                    .getResponseBody()
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(results).hasSize(30);
+            assertThat(results).allSatisfy(result -> assertThat(result.getReviewId()).isNotNull());
+        } finally {
+            restore.run();
+        }
+    }
+
+    /**
+     * Changes the batch size and interval of the shared handler, returning what restores them.
+     */
+    private Runnable handlerBatchSettings(int size, Duration interval) {
+        var previousSize = ReflectionTestUtils.getField(handler, "batchSize");
+        var previousInterval = ReflectionTestUtils.getField(handler, "batchInterval");
+        ReflectionTestUtils.setField(handler, "batchSize", size);
+        ReflectionTestUtils.setField(handler, "batchInterval", interval);
+        return () -> {
+            ReflectionTestUtils.setField(handler, "batchSize", previousSize);
+            ReflectionTestUtils.setField(handler, "batchInterval", previousInterval);
+        };
+    }
+
     @Test
     void getAllReviews() {
-        when(repository.findAll()).thenReturn(Flux.fromIterable(reviews));
+        when(repository.findAllBy(isA(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
         client.get()
                 .uri(MOVIES_REVIEW_URL)
                 .exchange()
@@ -88,12 +206,97 @@ class ReviewsUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllReviews_paged() {
+        when(repository.findAllBy(isA(Pageable.class))).thenReturn(Flux.fromIterable(List.of(
+                new Review("a", 1L, "Awesome Movie", 9.0),
+                new Review("b", 1L, "Awesome Movie1", 9.0),
+                new Review("c", 2L, "Excellent Movie", 8.0))));
+        when(repository.findByReviewIdGreaterThan(eq("b"), isA(Pageable.class)))
+                .thenReturn(Flux.just(new Review("c", 2L, "Excellent Movie", 8.0)));
+
+        var firstPage = client.get()
+                .uri(MOVIES_REVIEW_URL + "?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+        var cursor = firstPage.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        assertThat(cursor).isNotNull();
+
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "?limit=2&after={after}", cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getAllReviews_invalid_cursor() {
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "?after=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getReviews_with_fields() {
+        when(repository.findReviewPage(eq(1L), isNull(), eq(101), eq(Set.of("rating"))))
+                .thenReturn(Flux.just(new Review("a", null, null, 9.0, null), new Review("b", null, null, 8.0, null)));
+
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId=1&fields=rating")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .json("[{\"reviewId\":\"a\",\"rating\":9.0},{\"reviewId\":\"b\",\"rating\":8.0}]", true);
+    }
+
+    @Test
+    void getReviews_unknown_field() {
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "?fields=rating,author")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Unknown fields : author");
+    }
+
+    @Test
+    void getReviewStats() {
+        when(statsService.getStats(1L))
+                .thenReturn(Mono.just(new ReviewStatsResponse(1L, 2, 17.0, 8.5, Map.of("8.0", 1L, "9.0", 1L))));
+
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "/stats?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewStatsResponse.class)
+                .consumeWith(response -> {
+                    var stats = response.getResponseBody();
+                    assertThat(stats.getCount()).isEqualTo(2);
+                    assertThat(stats.getMean()).isEqualTo(8.5);
+                });
+    }
+
+    @Test
+    void getReviewStats_without_movieInfoId() {
+        client.get()
+                .uri(MOVIES_REVIEW_URL + "/stats")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void updateReview() {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
         var reviewWithId = new Review("abc", 1L, "Awesome Movie", 9.0);
         when(repository.save(isA(Review.class))).thenReturn(Mono.just(reviewWithId));
-        when(repository.findById(isA(String.class))).thenReturn(Mono.just(reviewWithId));
+        when(repository.updateReview(eq("abc"), isNull(), eq("Awesome Movie"), eq(9.0)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Good Movie", 7.0, 3L)));
 
         var addResponse = client
                 .post()
@@ -115,8 +318,36 @@ class ReviewsUnitTest {
                             var updatedReview = response.getResponseBody();
                             assert updatedReview != null;
                             assertThat(updatedReview.getRating()).isEqualTo(review.getRating());
+                            assertThat(updatedReview.getVersion()).isEqualTo(4L);
                         }
                 );
+        verify(statsService).recordUpdated(isA(Review.class), isA(Review.class));
+    }
+
+    @Test
+    void updateReview_not_found() {
+        when(repository.updateReview(eq("abc"), isNull(), any(), any())).thenReturn(Mono.empty());
+
+        client
+                .put()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, "Awesome Movie", 9.0))
+                .exchange()
+                .expectStatus().isNotFound();
+        verify(repository, never()).existsById(isA(String.class));
+    }
+
+    @Test
+    void updateReview_version_conflict() {
+        when(repository.updateReview(eq("abc"), eq(2L), any(), any())).thenReturn(Mono.empty());
+        when(repository.existsById("abc")).thenReturn(Mono.just(true));
+
+        client
+                .put()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, "Awesome Movie", 9.0, 2L))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
     }
 
     @Test
@@ -124,8 +355,7 @@ class ReviewsUnitTest {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
         var reviewWithId = new Review("abc", 1L, "Awesome Movie", 9.0);
         when(repository.save(isA(Review.class))).thenReturn(Mono.just(reviewWithId));
-        when(repository.findById(isA(String.class))).thenReturn(Mono.just(reviewWithId));
-        when(repository.delete(isA(Review.class))).thenReturn(Mono.empty());
+        when(repository.removeReview("abc")).thenReturn(Mono.just(reviewWithId));
         var addResponse = client
                 .post()
                 .uri(MOVIES_REVIEW_URL)
@@ -140,6 +370,7 @@ class ReviewsUnitTest {
                 .exchange()
                 .expectStatus().isNoContent()
                 .expectBody(Review.class);
+        verify(statsService).recordDeleted(reviewWithId);
     }
 
     @Test
@@ -147,7 +378,7 @@ class ReviewsUnitTest {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
         var reviewWithId = new Review("abc", 1L, "Awesome Movie", 9.0);
         when(repository.save(isA(Review.class))).thenReturn(Mono.just(reviewWithId));
-        when(repository.findReviewsByMovieInfoId(isA(Long.class))).thenReturn(Flux.fromIterable(reviews));
+        when(repository.findReviewsByMovieInfoId(isA(Long.class), isA(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
 
         var addResponse = client
                 .post()
@@ -170,4 +401,109 @@ class ReviewsUnitTest {
                         }
                 );
     }
+
+    @Test
+    void getReviews_not_modified() {
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"5\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"5\"");
+        verify(repository, never()).findReviewsByMovieInfoId(isA(Long.class), isA(Pageable.class));
+    }
+
+    @Test
+    void getReviews_modified_since_etag() {
+        when(repository.findReviewsByMovieInfoId(isA(Long.class), isA(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"4\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"5\"")
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void addReview_list_version_bump_fails() {
+        when(repository.save(isA(Review.class)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(listVersions.bump(1L)).thenReturn(Mono.error(new IllegalStateException("Version bump failed")));
+
+        client
+                .post()
+                .uri(MOVIES_REVIEW_URL)
+                .bodyValue(new Review(null, 1L, "Awesome Movie", 9.0))
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void addReview_cancelled_before_list_version_bump() throws InterruptedException {
+        var version = new AtomicLong(5);
+        var bumped = new CountDownLatch(1);
+        when(listVersions.currentVersion(1L)).thenAnswer(invocation -> Mono.fromSupplier(version::get));
+        when(listVersions.bump(1L)).thenAnswer(invocation -> Mono.fromRunnable(() -> {
+            version.incrementAndGet();
+            bumped.countDown();
+        }));
+        when(repository.save(isA(Review.class)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        // the stats update outlasts the request's deadline, so the request is cancelled before the bump
+        when(statsService.recordAdded(isA(Review.class))).thenReturn(Mono.delay(Duration.ofMillis(300)).then());
+        when(repository.findReviewsByMovieInfoId(isA(Long.class), isA(Pageable.class))).thenReturn(Flux.fromIterable(reviews));
+
+        client
+                .post()
+                .uri(MOVIES_REVIEW_URL)
+                .header(DeadlineWebFilter.HEADER, "100")
+                .bodyValue(new Review(null, 1L, "Awesome Movie", 9.0))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        assertThat(bumped.await(2, TimeUnit.SECONDS)).isTrue();
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "?movieInfoId={movieInfoId}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"5\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"6\"");
+    }
+
+    @Test
+    void getReviewById_not_modified() {
+        when(repository.findById("abc")).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0, 2L)));
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"2\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"1\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"2\"");
+    }
+
+    @Test
+    void getReviewById_deadline_exceeded() {
+        when(repository.findById("abc")).thenReturn(Mono.never());
+
+        client
+                .get()
+                .uri(MOVIES_REVIEW_URL + "/{id}", "abc")
+                .header(DeadlineWebFilter.HEADER, "100")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
 }
@@ -0,0 +1,99 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoReviewEventBusTest {
+
+    private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void publish_writesOnceCollectionSetupSucceedsAfterFailures() {
+        var attempts = new AtomicInteger();
+        when(template.collectionExists("reviewEvents")).thenReturn(Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(new IllegalStateException("Mongo unavailable"))
+                : Mono.just(true)));
+        when(template.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(Document.class), eq("reviewEventsSequence"))).thenReturn(Mono.just(new Document("value", 1L)));
+        when(template.insert(anyCollection(), eq("reviewEvents")))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<Collection<ReviewEvent>>getArgument(0)));
+        var eventBus = eventBus(5);
+
+        eventBus.publish(ReviewEvent.Type.CREATED, new Review("1", 1L, "Awesome Movie", 9.0));
+
+        verify(template, timeout(2000)).insert(anyCollection(), eq("reviewEvents"));
+        assertThat(attempts).hasValue(3);
+        eventBus.close();
+    }
+
+    @Test
+    void replaySince_failedSetupIsNotCached() {
+        var attempts = new AtomicInteger();
+        when(template.collectionExists("reviewEvents")).thenReturn(Mono.defer(() -> attempts.incrementAndGet() <= 2
+                ? Mono.error(new IllegalStateException("Mongo unavailable"))
+                : Mono.just(true)));
+        when(template.tail(isA(Query.class), eq(ReviewEvent.class), eq("reviewEvents"))).thenReturn(Flux.empty());
+        var eventBus = eventBus(1);
+
+        StepVerifier.create(eventBus.replaySince(Instant.EPOCH))
+                .verifyErrorMessage("Mongo unavailable");
+
+        StepVerifier.create(eventBus.replaySince(Instant.EPOCH))
+                .verifyComplete();
+        eventBus.close();
+    }
+
+    @Test
+    void replayLast_cursorStartsAtTheAnchorsSequence() {
+        var review = new Review("1", 1L, "Awesome Movie", 9.0);
+        when(template.collectionExists("reviewEvents")).thenReturn(Mono.just(true));
+        when(template.findOne(isA(Query.class), eq(ReviewEvent.class), eq("reviewEvents")))
+                .thenReturn(Mono.just(new ReviewEvent("a", Instant.EPOCH, ReviewEvent.Type.CREATED, review, 7L)));
+        when(template.tail(isA(Query.class), eq(ReviewEvent.class), eq("reviewEvents")))
+                .thenReturn(Flux.just(new ReviewEvent("a", Instant.EPOCH, ReviewEvent.Type.CREATED, review, 7L),
+                        new ReviewEvent("b", Instant.EPOCH, ReviewEvent.Type.UPDATED, review, 8L))
+                        .concatWith(Flux.never()));
+        var eventBus = eventBus(1);
+
+        StepVerifier.create(eventBus.replayLast(2).map(ReviewEvent::getSequence))
+                .expectNext(7L, 8L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        verify(template).tail(argThat(query -> query.getQueryObject()
+                        .equals(new Document("sequence", new Document("$gte", 7L)))),
+                eq(ReviewEvent.class), eq("reviewEvents"));
+        eventBus.close();
+    }
+
+    private MongoReviewEventBus eventBus(long setupMaxAttempts) {
+        return new MongoReviewEventBus(template, meterRegistry, "reviewEvents", DataSize.ofMegabytes(1), 100,
+                10, Duration.ofMillis(5), 100, setupMaxAttempts, Duration.ofMillis(1));
+    }
+}
@@ -0,0 +1,133 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReviewReplayBufferTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void publish_evictsOldestWhenFull() {
+        var buffer = new ReviewReplayBuffer(2, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+        buffer.publish(ReviewEvent.Type.CREATED, review("2"));
+        buffer.publish(ReviewEvent.Type.CREATED, review("3"));
+
+        assertThat(buffer.size()).isEqualTo(2);
+        StepVerifier.create(buffer.replayLast(Integer.MAX_VALUE).map(event -> event.getReview().getReviewId()))
+                .expectNext("2", "3")
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.get("reviews.stream.replay.evictions").tag("reason", "count").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void publish_evictsExpiredReviews() {
+        var buffer = new ReviewReplayBuffer(10, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+        clock.advance(Duration.ofMinutes(11));
+        buffer.publish(ReviewEvent.Type.CREATED, review("2"));
+
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("reviews.stream.replay.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void replayLast_replaysRecentThenLive() {
+        var buffer = new ReviewReplayBuffer(10, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+        buffer.publish(ReviewEvent.Type.CREATED, review("2"));
+        buffer.publish(ReviewEvent.Type.CREATED, review("3"));
+
+        StepVerifier.create(buffer.replayLast(2).map(event -> event.getReview().getReviewId()))
+                .expectNext("2", "3")
+                .then(() -> buffer.publish(ReviewEvent.Type.CREATED, review("4")))
+                .expectNext("4")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replaySince_replaysReviewsPublishedSince() {
+        var buffer = new ReviewReplayBuffer(10, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+        clock.advance(Duration.ofMinutes(1));
+        var since = clock.instant();
+        buffer.publish(ReviewEvent.Type.CREATED, review("2"));
+
+        StepVerifier.create(buffer.replaySince(since).map(event -> event.getReview().getReviewId()))
+                .expectNext("2")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void live_skipsHistory() {
+        var buffer = new ReviewReplayBuffer(10, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+
+        StepVerifier.create(buffer.live().map(event -> event.getReview().getReviewId()))
+                .then(() -> buffer.publish(ReviewEvent.Type.CREATED, review("2")))
+                .expectNext("2")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void replayLast_carriesEventTypeInOrder() {
+        var buffer = new ReviewReplayBuffer(10, Duration.ofMinutes(10), meterRegistry, clock);
+        buffer.publish(ReviewEvent.Type.CREATED, review("1"));
+        buffer.publish(ReviewEvent.Type.UPDATED, review("1"));
+        buffer.publish(ReviewEvent.Type.DELETED, review("1"));
+
+        StepVerifier.create(buffer.replayLast(Integer.MAX_VALUE).map(event -> event.getEventId() + ":" + event.getType()))
+                .expectNext("1:CREATED", "2:UPDATED", "3:DELETED")
+                .thenCancel()
+                .verify();
+    }
+
+    private static Review review(String id) {
+        return new Review(id, 1L, "Awesome Movie", 9.0);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Encode and decode throughput of the domain types with Boot's default mapper ({@code reflection}) and with
+ * the one configured by {@link JsonCodecConfig} ({@code blackbird}). Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({"reflection", "blackbird"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private Review review;
+    private MovieInfo movieInfo;
+    private Movie movie;
+    private byte[] reviewJson;
+    private byte[] movieInfoJson;
+    private byte[] movieJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        var builder = Jackson2ObjectMapperBuilder.json();
+        if (mapper.equals("blackbird")) {
+            builder.modulesToInstall(new JsonCodecConfig().blackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        review = new Review("65a1f0c2e4b0a1b2c3d4e5f6", 1L, "Awesome Movie", 9.5);
+        movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"),
+                LocalDate.parse("2005-06-15"));
+        var reviews = LongStream.range(0, 20)
+                .mapToObj(i -> new Review(Long.toHexString(i), 1L, "Review " + i, i % 10 + 0.5))
+                .toList();
+        movie = new Movie(movieInfo, reviews);
+        reviewJson = objectMapper.writeValueAsBytes(review);
+        movieInfoJson = objectMapper.writeValueAsBytes(movieInfo);
+        movieJson = objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] encodeReview() throws IOException {
+        return objectMapper.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public Review decodeReview() throws IOException {
+        return objectMapper.readValue(reviewJson, Review.class);
+    }
+
+    @Benchmark
+    public byte[] encodeMovieInfo() throws IOException {
+        return objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo decodeMovieInfo() throws IOException {
+        return objectMapper.readValue(movieInfoJson, MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] encodeMovie() throws IOException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public Movie decodeMovie() throws IOException {
+        return objectMapper.readValue(movieJson, Movie.class);
+    }
+}
@@ -1,33 +1,167 @@
 package com.reactivespring.client;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBatchItem;
+import com.reactivespring.exception.DeadlineExceededException;
 import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.util.Hedger;
+import com.reactivespring.util.RequestBudget;
 import com.reactivespring.util.RetryUtil;
-import lombok.RequiredArgsConstructor;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class MovieInfoRestClient {
 
     @Value("${rest-client.movies-info-url}")
     private String moviesInfoUrl;
 
+    @Value("${rest-client.movies-info-batch-max-ids:200}")
+    private int batchMaxIds;
+
     private final WebClient client;
+    private final SingleFlight<String, MovieInfo> singleFlight;
+    private final AsyncLoadingCache<String, MovieInfo> cache;
+    private final RequestBudget retryBudget;
+    private final Retry retrySpec;
+    private final Hedger hedger;
+    private final String hedgeUrl;
+
+    public MovieInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient client,
+                               MeterRegistry meterRegistry,
+                               RestClientProperties properties,
+                               @Value("${rest-client.movies-info-cache.maximum-size:10000}") long cacheMaximumSize,
+                               @Value("${rest-client.movies-info-cache.refresh-after:1m}") Duration cacheRefreshAfter,
+                               @Value("${rest-client.movies-info-cache.expire-after:10m}") Duration cacheExpireAfter) {
+        this.client = client;
+        this.singleFlight = new SingleFlight<>("movies-info", meterRegistry);
+        var retry = properties.getMoviesInfoRetry();
+        this.retryBudget = new RequestBudget("movies.client.retries", "movies-info", retry.getBudgetRatio(),
+                retry.getBudgetMinRetries(), retry.getBudgetWindow(), meterRegistry);
+        this.retrySpec = RetryUtil.retrySpec(retry, retryBudget);
+        var hedge = properties.getMoviesInfoHedge();
+        this.hedger = new Hedger("movies-info", hedge.isEnabled(), hedge.getPercentile(), hedge.getMinDelay(),
+                hedge.getBudgetRatio(), hedge.getBudgetWindow(), meterRegistry);
+        this.hedgeUrl = hedge.getUrl();
+        // size-based eviction uses W-TinyLFU admission; entries older than refresh-after are served while
+        // a single background reload runs, and are dropped entirely after expire-after
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .refreshAfterWrite(cacheRefreshAfter)
+                .expireAfterWrite(cacheExpireAfter)
+                .recordStats()
+                .buildAsync((movieId, executor) -> loadMovieInfo(movieId).toFuture()), "movies-info");
+    }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        // the load is shared by every caller missing on the id, so like a refresh it runs without any caller's
+        // Context; cancellation is suppressed and each caller only times out its own wait on the load
+        return Mono.deferContextual(context -> {
+            var movieInfo = Mono.fromFuture(() -> cache.get(movieId), true);
+            return Deadline.from(context)
+                    .map(deadline -> deadline.isExpired()
+                            ? Mono.<MovieInfo>error(deadlineExceeded(movieId))
+                            : movieInfo.timeout(deadline.remaining(), Mono.error(() -> deadlineExceeded(movieId))))
+                    .orElse(movieInfo);
+        });
+    }
+
+    /**
+     * The movie infos of {@code movieIds} by id; ids without a movie info are left out. Cached movie infos are
+     * served from the cache and the rest are read with one {@code batch-get} call per
+     * {@code movies-info-batch-max-ids} ids, whose results fill the cache.
+     */
+    public Mono<Map<String, MovieInfo>> retrieveMovieInfos(Collection<String> movieIds) {
+        return Mono.defer(() -> {
+            var found = new HashMap<>(cache.synchronous().getAllPresent(movieIds));
+            var missing = movieIds.stream().filter(id -> !found.containsKey(id)).distinct().toList();
+            return Flux.fromIterable(missing)
+                    .buffer(batchMaxIds)
+                    .concatMap(this::fetchMovieInfoBatch)
+                    .filter(item -> item.getStatus() == HttpStatus.OK.value() && item.getMovieInfo() != null)
+                    .doOnNext(item -> cache.put(item.getMovieInfoId(),
+                            CompletableFuture.completedFuture(item.getMovieInfo())))
+                    .collect(() -> found, (movieInfos, item) -> movieInfos.put(item.getMovieInfoId(),
+                            item.getMovieInfo()));
+        });
+    }
+
+    public void evictMovieInfo(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+
+    private static DeadlineExceededException deadlineExceeded(String movieId) {
+        return new DeadlineExceededException("Deadline exceeded waiting for MovieInfo " + movieId);
+    }
+
+    private Mono<MovieInfo> loadMovieInfo(String movieId) {
+        return singleFlight.mono(movieId, () -> fetchMovieInfo(movieId));
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
+        return hedger.hedge(hedged -> requestMovieInfo(hedged && hedgeUrl != null ? hedgeUrl : moviesInfoUrl, movieId))
+                //.retry(3)
+                .retryWhen(retrySpec)
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .log();
+    }
+
+    private Flux<MovieInfoBatchItem> fetchMovieInfoBatch(List<String> movieIds) {
+        return client.post()
+                .uri(moviesInfoUrl + "/batch-get")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(movieIds)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty(response.statusCode().toString())
+                        .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
+                                responseMessage, response.statusCode().value()
+                        ))))
+                .onStatus(HttpStatusCode::is5xxServerError, response -> {
+                    log.info("Status code is : {}", response.statusCode().value());
+                    return response.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server exception caught : " + responseMessage
+                            )));
+                })
+                .bodyToFlux(MovieInfoBatchItem.class)
+                // collected first, so a retry after a partly read response does not emit the first items twice
+                .collectList()
+                .retryWhen(retrySpec)
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .flatMapIterable(items -> items);
+    }
+
+    private Mono<MovieInfo> requestMovieInfo(String baseUrl, String movieId) {
 
         return client.get()
-                .uri(moviesInfoUrl + "/{id}", movieId)
+                .uri(baseUrl + "/{id}", movieId)
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, response -> {
                     if (response.statusCode().equals(HttpStatus.NOT_FOUND)) {
@@ -43,16 +177,17 @@ public class MovieInfoRestClient {
                 .onStatus(HttpStatusCode::is5xxServerError, response -> {
                     log.info("Status code is : {}", response.statusCode().value());
                     return response.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
-                                    "Server exception caught : " + responseMessage, response.statusCode().value()
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server exception caught : " + responseMessage
                             )));
                 })
-                .bodyToMono(MovieInfo.class)
-                //.retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .bodyToMono(MovieInfo.class);
     }
 
+    /**
+     * The movie infos streamed by the movie info service as movies. Its reset events, which carry no movie info,
+     * are left out: this stream always starts from the retained events and never resumes from an offset.
+     */
     public Flux<Movie> retrieveMovieInfoInfoStream() {
         var url = moviesInfoUrl.concat("/stream");
         return client.get()
@@ -65,13 +200,15 @@ public class MovieInfoRestClient {
                 .onStatus(HttpStatusCode::is5xxServerError, response -> {
                     log.info("Status code is : {}", response.statusCode().value());
                     return response.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
-                                    "Server exception caught : " + responseMessage, response.statusCode().value()
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server exception caught : " + responseMessage
                             )));
                 })
                 .bodyToFlux(Movie.class)
+                .filter(movie -> movie.getMovieInfo() != null)
                 //.retry(3)
-                .retryWhen(RetryUtil.retrySpec())
+                .retryWhen(retrySpec)
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
                 .log();
     }
 }
@@ -1,34 +1,207 @@
 package com.reactivespring.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.Review;
+import com.reactivespring.exception.DeadlineExceededException;
 import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.RequestBudget;
 import com.reactivespring.util.RetryUtil;
-import lombok.RequiredArgsConstructor;
+import com.reactivespring.util.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 @Component
-@RequiredArgsConstructor
 public class ReviewsRestClient {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Value("${rest-client.reviews-url}")
     private String reviewsUrl;
 
+    @Value("${rest-client.reviews-page-size:1000}")
+    private int reviewsPageSize;
+
     private final WebClient client;
+    private final SingleFlight<String, Review> singleFlight;
+    private final RequestBudget retryBudget;
+    private final Retry retrySpec;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Cache<String, List<Review>> lastKnownReviews;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadFullRejections;
+
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient client,
+                             MeterRegistry meterRegistry,
+                             RestClientProperties properties,
+                             @Qualifier("reviewsCircuitBreaker") CircuitBreaker circuitBreaker,
+                             @Qualifier("reviewsBulkhead") Bulkhead bulkhead,
+                             @Value("${rest-client.reviews-fallback-cache.maximum-size:10000}") long fallbackCacheMaximumSize) {
+        this.client = client;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.lastKnownReviews = Caffeine.newBuilder()
+                .maximumSize(fallbackCacheMaximumSize)
+                .build();
+        this.circuitOpenRejections = Counter.builder("movies.client.rejections")
+                .tag("client", "reviews")
+                .tag("reason", "circuit-open")
+                .register(meterRegistry);
+        this.bulkheadFullRejections = Counter.builder("movies.client.rejections")
+                .tag("client", "reviews")
+                .tag("reason", "bulkhead-full")
+                .register(meterRegistry);
+        this.singleFlight = new SingleFlight<>("reviews", meterRegistry);
+        var retry = properties.getReviewsRetry();
+        this.retryBudget = new RequestBudget("movies.client.retries", "reviews", retry.getBudgetRatio(),
+                retry.getBudgetMinRetries(), retry.getBudgetWindow(), meterRegistry);
+        this.retrySpec = RetryUtil.retrySpec(retry, retryBudget);
+    }
 
     public Flux<Review> retrieveReviews(String movieId) {
-        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-                .queryParam("movieInfoId", movieId)
-                .buildAndExpand()
-                .toUriString();
+        // the call is shared by every caller coalesced on the id, so like a movie info load it runs without any
+        // caller's deadline; each caller only times out its own wait on it
+        return Flux.deferContextual(context -> {
+            var reviews = singleFlight.flux(movieId, () -> fetchReviews(movieId)
+                    .contextWrite(ctx -> ctx.delete(Deadline.contextKey())));
+            return Deadline.from(context)
+                    .map(deadline -> deadline.isExpired()
+                            ? Flux.<Review>error(deadlineExceeded(movieId))
+                            : reviews.takeUntilOther(Mono.delay(deadline.remaining())
+                                    .then(Mono.error(() -> deadlineExceeded(movieId)))))
+                    .orElse(reviews);
+        });
+    }
+
+    /**
+     * Collects the reviews for a movie and remembers them as the fallback served while the upstream is rejected.
+     */
+    public Mono<List<Review>> retrieveReviewList(String movieId) {
+        return retrieveReviews(movieId)
+                .collectList()
+                .doOnNext(reviews -> lastKnownReviews.put(movieId, reviews));
+    }
+
+    /**
+     * Collects at most {@code limit} reviews, asking the reviews service for pages of exactly the reviews still
+     * missing, so that the cursor it returns with the last page resumes right after them. {@code next} is that
+     * cursor, or null when there are no more reviews.
+     */
+    public Mono<ReviewPage> retrieveReviewPage(String movieId, int limit) {
+        return fetchReviews(movieId, null, limit)
+                .doOnNext(page -> {
+                    if (page.next() == null) {
+                        lastKnownReviews.put(movieId, page.reviews());
+                    }
+                });
+    }
+
+    /**
+     * Streams reviews straight from the upstream, bypassing the single-flight replay buffer, so memory use
+     * is bounded by downstream demand rather than by the number of reviews. {@code after} is a cursor from
+     * {@link ReviewPage#next()} to resume from, or null to start with the first review.
+     */
+    public Flux<Review> streamReviews(String movieId, String after) {
+        return fetchReviewPage(movieId, after);
+    }
+
+    public List<Review> lastKnownReviews(String movieId) {
+        var reviews = lastKnownReviews.getIfPresent(movieId);
+        return reviews != null ? reviews : List.of();
+    }
+
+    /**
+     * True when the call was not attempted because the circuit breaker is open or the bulkhead is full.
+     */
+    public static boolean isRejected(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    private static DeadlineExceededException deadlineExceeded(String movieId) {
+        return new DeadlineExceededException("Deadline exceeded waiting for reviews of " + movieId);
+    }
+
+    private Flux<Review> fetchReviews(String movieId) {
+        return fetchReviewPage(movieId, null);
+    }
+
+    /**
+     * Fetches one page of reviews, then the following pages for as long as the reviews service returns a
+     * next cursor. Each page's exchange goes through the bulkhead, circuit breaker and retries on its own, so a
+     * failed exchange is retried without fetching the earlier pages again; a body failing partway is not retried.
+     */
+    private Flux<Review> fetchReviewPage(String movieId, String after) {
+        return Flux.defer(() -> {
+            var nextCursor = new AtomicReference<String>();
+            return fetchPage(movieId, after, reviewsPageSize, nextCursor)
+                    .concatWith(Flux.defer(() -> nextCursor.get() != null
+                            ? fetchReviewPage(movieId, nextCursor.get())
+                            : Flux.empty()));
+        });
+    }
+
+    /**
+     * Fetches pages until {@code limit} reviews are read or none are left. The reviews service caps its page
+     * size, so each page asks for the reviews still missing and the last cursor lands on the limit exactly.
+     */
+    private Mono<ReviewPage> fetchReviews(String movieId, String after, int limit) {
+        return Mono.defer(() -> {
+            var nextCursor = new AtomicReference<String>();
+            return fetchPage(movieId, after, limit, nextCursor)
+                    .collectList()
+                    .flatMap(reviews -> {
+                        var next = nextCursor.get();
+                        if (next == null || reviews.size() >= limit) {
+                            return Mono.just(new ReviewPage(reviews, next));
+                        }
+                        return fetchReviews(movieId, next, limit - reviews.size())
+                                .map(rest -> new ReviewPage(
+                                        Stream.concat(reviews.stream(), rest.reviews().stream()).toList(),
+                                        rest.next()));
+                    });
+        });
+    }
+
+    private Flux<Review> fetchPage(String movieId, String after, int pageSize, AtomicReference<String> nextCursor) {
         return client.get()
-                .uri(url)
+                // the id and cursor come from the caller, so they are expanded as variables and encoded in full
+                .uri(reviewsUrl, uriBuilder -> {
+                    var variables = new HashMap<String, Object>();
+                    variables.put("movieInfoId", movieId);
+                    uriBuilder.queryParam("movieInfoId", "{movieInfoId}")
+                            .queryParam("limit", pageSize);
+                    if (after != null) {
+                        variables.put("after", after);
+                        uriBuilder.queryParam("after", "{after}");
+                    }
+                    return uriBuilder.build(variables);
+                })
+                .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, response -> {
                     if (response.statusCode().equals(HttpStatus.NOT_FOUND)) {
@@ -39,8 +212,29 @@ public class ReviewsRestClient {
                                     "Server Exception in ReviewService" + responseMessage
                             )));
                 })
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .onStatus(HttpStatusCode::is5xxServerError, response -> response.bodyToMono(String.class)
+                        .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
+                                "Server Exception in ReviewService " + responseMessage
+                        ))))
+                .toEntityFlux(Review.class)
+                // only the exchange is guarded: a body drained slowly by a streaming client neither holds a
+                // bulkhead permit nor counts as a slow call
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(CallNotPermittedException.class, ex -> circuitOpenRejections.increment())
+                .doOnError(BulkheadFullException.class, ex -> bulkheadFullRejections.increment())
+                // only the exchange is retried too: the reviews of a body failing partway may already be emitted
+                .retryWhen(retrySpec)
+                .doOnSubscribe(subscription -> retryBudget.recordRequest())
+                .flatMapMany(entity -> {
+                    nextCursor.set(entity.getHeaders().getFirst(NEXT_CURSOR_HEADER));
+                    return entity.getBody() != null ? entity.getBody() : Flux.<Review>empty();
+                });
+    }
+
+    /**
+     * Reviews read so far and the cursor to pass as {@code after} for the ones that follow, null when none do.
+     */
+    public record ReviewPage(List<Review> reviews, String next) {
     }
 }
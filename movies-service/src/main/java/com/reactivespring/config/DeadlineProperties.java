@@ -0,0 +1,23 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "movies.deadline")
+public class DeadlineProperties {
+
+    /**
+     * Deadline applied when the request carries no {@code X-Request-Timeout} header and matches no route.
+     */
+    private Duration defaultTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Per-route defaults keyed by path pattern; a zero duration means no deadline, e.g. for streams.
+     */
+    private Map<String, Duration> routes = new LinkedHashMap<>();
+}
@@ -0,0 +1,22 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tunes the application {@code ObjectMapper}, which Boot also hands to the WebFlux JSON and NDJSON codecs
+ * and to the {@code WebClient} codecs, so every request and response body goes through it.
+ * <p>
+ * Blackbird replaces reflective property access with generated lambdas. The codec buffer limit is
+ * {@code spring.codec.max-in-memory-size}.
+ */
+@Configuration
+public class JsonCodecConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
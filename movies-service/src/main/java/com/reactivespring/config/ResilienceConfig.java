@@ -0,0 +1,68 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.ReviewsClientException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    /**
+     * State, call outcome and not-permitted counts are published as {@code resilience4j.circuitbreaker.*};
+     * every state transition is also logged and counted in {@code movies.client.circuit-breaker.transitions}.
+     */
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(RestClientProperties properties, MeterRegistry meterRegistry) {
+        var props = properties.getReviewsCircuitBreaker();
+        var registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(props.getFailureRateThreshold())
+                .slowCallRateThreshold(props.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(props.getSlowCallDuration())
+                .slidingWindowSize(props.getSlidingWindowSize())
+                .minimumNumberOfCalls(props.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(props.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(props.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreExceptions(ReviewsClientException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+
+        var circuitBreaker = registry.circuitBreaker("reviews");
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Circuit breaker {} : {}", event.getCircuitBreakerName(), event.getStateTransition());
+            Counter.builder("movies.client.circuit-breaker.transitions")
+                    .tag("name", event.getCircuitBreakerName())
+                    .tag("from", event.getStateTransition().getFromState().name())
+                    .tag("to", event.getStateTransition().getToState().name())
+                    .register(meterRegistry)
+                    .increment();
+        });
+        return circuitBreaker;
+    }
+
+    /**
+     * Available and maximum concurrent calls are published as {@code resilience4j.bulkhead.*}.
+     */
+    @Bean
+    public Bulkhead reviewsBulkhead(RestClientProperties properties, MeterRegistry meterRegistry) {
+        var props = properties.getReviewsBulkhead();
+        var registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(props.getMaxConcurrentCalls())
+                .maxWaitDuration(props.getMaxWaitDuration())
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead("reviews");
+    }
+}
@@ -0,0 +1,72 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rest-client")
+public class RestClientProperties {
+
+    private Pool moviesInfoPool = new Pool();
+    private Pool reviewsPool = new Pool();
+    private Retry moviesInfoRetry = new Retry();
+    private Retry reviewsRetry = new Retry();
+    private Hedge moviesInfoHedge = new Hedge();
+    private CircuitBreaker reviewsCircuitBreaker = new CircuitBreaker();
+    private Bulkhead reviewsBulkhead = new Bulkhead();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Retry {
+        private int maxAttempts = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double budgetRatio = 0.2;
+        private int budgetMinRetries = 10;
+        private Duration budgetWindow = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(50);
+        /**
+         * Hedged requests allowed per primary request; capped at 1.0 so hedging never more than doubles load.
+         */
+        private double budgetRatio = 0.1;
+        private Duration budgetWindow = Duration.ofSeconds(10);
+        /**
+         * Base url for the hedged request, e.g. another instance; defaults to the primary url.
+         */
+        private String url;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 50;
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 50;
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+}
@@ -1,14 +1,65 @@
 package com.reactivespring.config;
 
+import com.reactivespring.deadline.DeadlineExchangeFilterFunction;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
+@EnableConfigurationProperties({RestClientProperties.class, DeadlineProperties.class})
 public class WebClientConfig {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(RestClientProperties properties) {
+        return connectionProvider("movies-info", properties.getMoviesInfoPool());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(RestClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviewsPool());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient moviesInfoWebClient(WebClient.Builder builder,
+                                         @Qualifier("moviesInfoConnectionProvider") ConnectionProvider provider,
+                                         MeterRegistry meterRegistry) {
+        return webClient(builder, provider, new DeadlineExchangeFilterFunction("movies-info", meterRegistry));
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider provider,
+                                      MeterRegistry meterRegistry) {
+        return webClient(builder, provider, new DeadlineExchangeFilterFunction("reviews", meterRegistry));
+    }
+
+    /**
+     * Pool metrics (active, idle, pending connections and acquire time) are published to the global
+     * Micrometer registry as {@code reactor.netty.connection.provider.*}, tagged with the pool name.
+     */
+    private ConnectionProvider connectionProvider(String name, RestClientProperties.Pool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider provider,
+                                DeadlineExchangeFilterFunction deadlineFilter) {
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+                .filter(deadlineFilter)
+                .build();
     }
 }
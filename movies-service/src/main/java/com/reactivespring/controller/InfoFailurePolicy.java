@@ -0,0 +1,13 @@
+package com.reactivespring.controller;
+
+/**
+ * What to do with an in-flight reviews call when the MovieInfo lookup it runs alongside fails.
+ */
+public enum InfoFailurePolicy {
+
+    /** Cancel the reviews call together with the failed request. */
+    CANCEL,
+
+    /** Let the reviews call run to completion in the background, e.g. to keep the connection reusable. */
+    FINISH
+}
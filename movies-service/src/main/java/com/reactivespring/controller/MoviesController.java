@@ -3,15 +3,30 @@ package com.reactivespring.controller;
 import com.reactivespring.client.MovieInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieBatchItem;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/v1/movies")
@@ -20,17 +35,131 @@ public class MoviesController {
     private final MovieInfoRestClient movieInfoRestClient;
     private final ReviewsRestClient reviewsRestClient;
 
+    @Value("${movies.batch.max-ids:200}")
+    private int batchMaxIds;
+
+    @Value("${movies.batch.concurrency:16}")
+    private int batchConcurrency;
+
+    @Value("${movies.reviews-on-info-failure:cancel}")
+    private InfoFailurePolicy infoFailurePolicy;
+
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId,
+                                         @RequestParam(value = "maxReviews", required = false) Integer maxReviews) {
+        if (maxReviews != null && maxReviews < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxReviews must be positive"));
+        }
+
+        // both lookups only need the movie id, so they are issued concurrently
+        var reviews = retrieveReviewsOrLastKnown(movieId, maxReviews);
+        if (infoFailurePolicy == InfoFailurePolicy.FINISH) {
+            // the future boundary drops the Reactor Context, so the request's deadline is written back in explicitly
+            var detached = reviews;
+            reviews = Mono.deferContextual(context -> Mono.fromFuture(
+                    () -> detached.contextWrite(context).toFuture(), true));
+        }
+        return Mono.zip(movieInfoRestClient.retrieveMovieInfo(movieId), reviews,
+                (movieInfo, revs) -> new Movie(movieInfo, revs.reviewList(), revs.degraded(), revs.next()));
+    }
+
+    @GetMapping(value = "/{id}/reviews", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Review> retrieveReviewsStream(@PathVariable("id") String movieId,
+                                              @RequestParam(value = "after", required = false) String after,
+                                              @RequestParam(value = "skip", defaultValue = "0") long skip) {
+        if (skip < 0) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "skip must not be negative"));
+        }
+        // resuming from a cursor starts the upstream listing there, instead of reading and skipping what came before
+        return reviewsRestClient.streamReviews(movieId, after)
+                // the reviews service rejects only the request's own input here, such as a malformed cursor
+                .onErrorMap(ReviewsClientException.class,
+                        ex -> new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage()))
+                .skip(skip);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieBatchItem> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        return retrieveMovies(movieIds);
+    }
+
+    @PostMapping(value = "/batch-get", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieBatchItem> retrieveMoviesBatch(@RequestBody List<String> movieIds) {
+        return retrieveMovies(movieIds);
+    }
 
-        return movieInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo -> reviewsRestClient.retrieveReviews(movieId)
-                        .collectList()
-                        .map(revs -> new Movie(movieInfo, revs)));
+    @DeleteMapping("/{id}/cache")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> evictMovieInfo(@PathVariable("id") String movieId) {
+        return Mono.fromRunnable(() -> movieInfoRestClient.evictMovieInfo(movieId));
     }
 
     @GetMapping(value="/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<Movie> retrieveMovieStream() {
         return movieInfoRestClient.retrieveMovieInfoInfoStream();
     }
+
+    /**
+     * Aggregates every requested movie, emitting results in request order. The movie infos are read in one batched
+     * lookup, then reviews are fetched with at most {@code movies.batch.concurrency} calls in flight. A movie
+     * without a movie info or whose reviews fail becomes a per-item error instead of failing the batch.
+     */
+    private Flux<MovieBatchItem> retrieveMovies(List<String> movieIds) {
+        if (movieIds.isEmpty() || movieIds.size() > batchMaxIds) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Number of movie ids must be between 1 and " + batchMaxIds));
+        }
+        return movieInfoRestClient.retrieveMovieInfos(movieIds)
+                .flatMapMany(movieInfos -> Flux.fromIterable(movieIds)
+                        .flatMapSequential(movieId -> {
+                            var movieInfo = movieInfos.get(movieId);
+                            if (movieInfo == null) {
+                                return Mono.just(MovieBatchItem.failed(movieId, HttpStatus.NOT_FOUND.value(),
+                                        "There is no MovieInfo available for the passed Id : " + movieId));
+                            }
+                            return retrieveReviewsOrLastKnown(movieId, null)
+                                    .map(revs -> MovieBatchItem.found(movieId, new Movie(movieInfo, revs.reviewList(),
+                                            revs.degraded(), revs.next())))
+                                    .onErrorResume(ex -> Mono.just(toFailedItem(movieId, ex)));
+                        }, batchConcurrency))
+                // only the movie info lookup can fail here: every item already turns its own failure into an error item
+                .onErrorResume(ex -> Flux.fromIterable(movieIds).map(movieId -> toFailedItem(movieId, ex)));
+    }
+
+    private MovieBatchItem toFailedItem(String movieId, Throwable ex) {
+        if (ex instanceof MoviesInfoClientException clientException) {
+            return MovieBatchItem.failed(movieId, clientException.getStatusCode(), clientException.getMessage());
+        }
+        if (ex instanceof DeadlineExceededException) {
+            return MovieBatchItem.failed(movieId, HttpStatus.GATEWAY_TIMEOUT.value(), ex.getMessage());
+        }
+        return MovieBatchItem.failed(movieId, HttpStatus.INTERNAL_SERVER_ERROR.value(), ex.getMessage());
+    }
+
+    /**
+     * The reviews of a movie, or the last known ones marked degraded while the reviews service is rejected.
+     */
+    private Mono<Reviews> retrieveReviewsOrLastKnown(String movieId, Integer maxReviews) {
+        return retrieveReviews(movieId, maxReviews)
+                .onErrorResume(ReviewsRestClient::isRejected,
+                        ex -> Mono.just(new Reviews(reviewsRestClient.lastKnownReviews(movieId), true, null)));
+    }
+
+    private Mono<Reviews> retrieveReviews(String movieId, Integer maxReviews) {
+        if (maxReviews == null) {
+            return reviewsRestClient.retrieveReviewList(movieId)
+                    .map(reviewList -> new Reviews(reviewList, false, null));
+        }
+        return reviewsRestClient.retrieveReviewPage(movieId, maxReviews)
+                .map(page -> new Reviews(page.reviews(), false, page.next() != null
+                        ? "/v1/movies/" + movieId + "/reviews?after=" + page.next()
+                        : null));
+    }
+
+    /**
+     * Reviews for a movie; {@code degraded} marks a stale or empty list served while the reviews service is rejected,
+     * {@code next} links to the remaining reviews when the list was capped.
+     */
+    private record Reviews(List<Review> reviewList, boolean degraded, String next) {
+    }
 }
@@ -0,0 +1,39 @@
+package com.reactivespring.deadline;
+
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Point in time by which the current inbound request must be answered, carried in the Reactor Context.
+ * <p>
+ * Between services the deadline travels as the remaining budget in milliseconds, so clock skew
+ * between hosts does not matter.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final Class<Deadline> CONTEXT_KEY = Deadline.class;
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static Optional<Deadline> from(ContextView context) {
+        return context.getOrEmpty(CONTEXT_KEY);
+    }
+
+    public static Class<Deadline> contextKey() {
+        return CONTEXT_KEY;
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.reactivespring.deadline;
+
+import com.reactivespring.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caps every outbound call, including each retry and hedge, at the time left on the inbound request's
+ * {@link Deadline} and forwards that remaining budget downstream in the {@link Deadline#HEADER} header.
+ * <p>
+ * A call is not sent at all once the deadline has passed. Calls made outside a request, e.g. background
+ * cache refreshes, carry no deadline and are left untouched. So do movie info cache loads and coalesced
+ * reviews calls, which are shared by every request for the same id; each of those requests bounds only its
+ * own wait on the shared call.
+ */
+public class DeadlineExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final Counter expired;
+
+    public DeadlineExchangeFilterFunction(String name, MeterRegistry meterRegistry) {
+        this.expired = Counter.builder("movies.deadline.exceeded")
+                .tag("where", "outbound")
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            var deadline = Deadline.from(context);
+            if (deadline.isEmpty()) {
+                return next.exchange(request);
+            }
+            var remaining = deadline.get().remaining();
+            if (remaining.isNegative() || remaining.isZero()) {
+                return Mono.error(exceeded(request));
+            }
+            var withBudget = ClientRequest.from(request)
+                    .header(Deadline.HEADER, String.valueOf(Math.max(1, remaining.toMillis())))
+                    .build();
+            return next.exchange(withBudget)
+                    .timeout(remaining, Mono.error(() -> exceeded(request)));
+        });
+    }
+
+    private DeadlineExceededException exceeded(ClientRequest request) {
+        expired.increment();
+        return new DeadlineExceededException("Deadline exceeded calling " + request.method() + " " + request.url());
+    }
+}
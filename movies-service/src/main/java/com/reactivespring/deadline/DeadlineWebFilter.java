@@ -0,0 +1,97 @@
+package com.reactivespring.deadline;
+
+import com.reactivespring.config.DeadlineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts the deadline for every inbound request and puts it in the Reactor Context for the outbound clients.
+ * <p>
+ * The budget comes from the {@link Deadline#HEADER} header when a caller sent one, otherwise from the first
+ * matching route in {@code movies.deadline.routes}, otherwise from {@code movies.deadline.default-timeout}.
+ * A request whose budget is already spent is answered with 504 without doing any work, and a request still
+ * running when its deadline passes is cancelled, which also cancels its upstream calls.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    private final Duration defaultTimeout;
+    private final Map<PathPattern, Duration> routes = new LinkedHashMap<>();
+    private final Counter expired;
+
+    public DeadlineWebFilter(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.defaultTimeout = properties.getDefaultTimeout();
+        properties.getRoutes().forEach((pattern, timeout) ->
+                routes.put(PathPatternParser.defaultInstance.parse(pattern), timeout));
+        this.expired = Counter.builder("movies.deadline.exceeded")
+                .tag("where", "inbound")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var timeout = timeout(exchange.getRequest());
+        if (timeout == null) {
+            return chain.filter(exchange);
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            log.warn("Deadline already exceeded for {}", exchange.getRequest().getPath());
+            return gatewayTimeout(exchange);
+        }
+        var deadline = Deadline.after(timeout);
+        return chain.filter(exchange)
+                .timeout(timeout, Mono.defer(() -> {
+                    log.warn("Deadline of {} exceeded for {}", timeout, exchange.getRequest().getPath());
+                    return gatewayTimeout(exchange);
+                }))
+                .contextWrite(context -> context.put(Deadline.contextKey(), deadline));
+    }
+
+    /**
+     * @return the budget for the request, or null when its route runs without a deadline
+     */
+    private Duration timeout(ServerHttpRequest request) {
+        var header = request.getHeaders().getFirst(Deadline.HEADER);
+        if (header != null) {
+            try {
+                return Duration.ofMillis(Long.parseLong(header.trim()));
+            } catch (NumberFormatException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        Deadline.HEADER + " must be a number of milliseconds");
+            }
+        }
+        var path = request.getPath().pathWithinApplication();
+        for (var route : routes.entrySet()) {
+            if (route.getKey().matches(path)) {
+                return route.getValue().isZero() ? null : route.getValue();
+            }
+        }
+        return defaultTimeout.isZero() ? null : defaultTimeout;
+    }
+
+    private Mono<Void> gatewayTimeout(ServerWebExchange exchange) {
+        expired.increment();
+        var response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.empty();
+        }
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return response.setComplete();
+    }
+}
@@ -14,4 +14,13 @@ public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    private boolean reviewsDegraded;
+    /**
+     * Link to the remaining reviews when {@code reviewList} was capped, otherwise null.
+     */
+    private String reviewsNext;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, false, null);
+    }
 }
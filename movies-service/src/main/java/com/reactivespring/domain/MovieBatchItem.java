@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieBatchItem {
+
+    private String movieId;
+    private Integer status;
+    private Movie movie;
+    private String error;
+
+    public static MovieBatchItem found(String movieId, Movie movie) {
+        return new MovieBatchItem(movieId, 200, movie, null);
+    }
+
+    public static MovieBatchItem failed(String movieId, Integer status, String error) {
+        return new MovieBatchItem(movieId, status, null, error);
+    }
+}
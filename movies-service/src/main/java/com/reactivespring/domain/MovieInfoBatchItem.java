@@ -0,0 +1,19 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One item of the movies info service's batch-get response: the movie info with status 200, or status 404
+ * and no movie info when the id has none.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoBatchItem {
+
+    private String movieInfoId;
+    private Integer status;
+    private MovieInfo movieInfo;
+}
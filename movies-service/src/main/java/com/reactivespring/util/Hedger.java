@@ -0,0 +1,120 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Sends a second, identical request when the first has not answered within the observed latency percentile.
+ * <p>
+ * Whichever request signals first wins and the other one is cancelled; a failed hedge is ignored, so only a
+ * value or the primary's own error can end the race. Hedges are taken from a
+ * {@link RequestBudget} so they can never add more than {@code budgetRatio} of the primary traffic.
+ */
+public class Hedger {
+
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final RequestBudget budget;
+    private final Timer latency;
+    private final Counter notHedged;
+    private final Counter hedgeWon;
+    private final Counter hedgeLost;
+
+    private volatile Duration delay;
+    private volatile long delayComputedAt;
+
+    public Hedger(String name, boolean enabled, double percentile, Duration minDelay, double budgetRatio,
+                  Duration budgetWindow, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.delay = minDelay;
+        this.delayComputedAt = System.nanoTime();
+        this.budget = new RequestBudget("movies.client.hedges.budget", name, Math.min(1.0, budgetRatio), 0,
+                budgetWindow, meterRegistry);
+        this.latency = Timer.builder("movies.client.latency")
+                .tag("client", name)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(budgetWindow)
+                .register(meterRegistry);
+        this.notHedged = hedgeCounter(name, "not-hedged", meterRegistry);
+        this.hedgeWon = hedgeCounter(name, "won", meterRegistry);
+        this.hedgeLost = hedgeCounter(name, "lost", meterRegistry);
+    }
+
+    /**
+     * @param call builds the request; the argument is {@code true} for the hedged copy
+     */
+    public <T> Mono<T> hedge(Function<Boolean, Mono<T>> call) {
+        if (!enabled) {
+            return call.apply(false);
+        }
+        return Mono.defer(() -> {
+            budget.recordRequest();
+            var hedgeSent = new AtomicBoolean();
+            var start = System.nanoTime();
+            var primary = call.apply(false)
+                    .doOnSuccess(value -> {
+                        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        (hedgeSent.get() ? hedgeLost : notHedged).increment();
+                    })
+                    // a primary cancelled by a winning hedge took at least this long; leaving it out skews the percentile low
+                    .doOnCancel(() -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            var hedged = Mono.delay(currentDelay())
+                    .filter(tick -> budget.tryAcquire())
+                    .flatMap(tick -> {
+                        hedgeSent.set(true);
+                        return call.apply(true)
+                                .doOnSuccess(value -> hedgeWon.increment())
+                                // a failed hedge must not win the race: the primary still answers for itself
+                                .onErrorResume(ex -> Mono.never());
+                    })
+                    .switchIfEmpty(Mono.never());
+            return Mono.firstWithSignal(primary, hedged);
+        });
+    }
+
+    public double hedgeWonCount() {
+        return hedgeWon.count();
+    }
+
+    public double hedgeLostCount() {
+        return hedgeLost.count();
+    }
+
+    private Duration currentDelay() {
+        var now = System.nanoTime();
+        if (now - delayComputedAt > DELAY_REFRESH_NANOS) {
+            delayComputedAt = now;
+            delay = observedPercentile();
+        }
+        return delay;
+    }
+
+    private Duration observedPercentile() {
+        for (var value : latency.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                var observed = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+                return observed.compareTo(minDelay) > 0 ? observed : minDelay;
+            }
+        }
+        return minDelay;
+    }
+
+    private static Counter hedgeCounter(String name, String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("movies.client.hedges")
+                .tag("client", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,102 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps extra calls against one upstream (retries, hedges) to a fraction of the requests sent to it over a
+ * sliding window.
+ * <p>
+ * The window is split into buckets so that old traffic ages out gradually. {@code minAllowance} keeps a
+ * small allowance available when traffic is low, so a single failing request can still be retried.
+ */
+public class RequestBudget {
+
+    private static final int BUCKETS = 10;
+
+    private final double ratio;
+    private final int minAllowance;
+    private final long bucketNanos;
+    private final LongSupplier nanoClock;
+
+    private final long[] bucketEpochs = new long[BUCKETS];
+    private final long[] requests = new long[BUCKETS];
+    private final long[] extras = new long[BUCKETS];
+
+    private final Counter attempted;
+    private final Counter suppressed;
+
+    public RequestBudget(String meterName, String name, double ratio, int minAllowance, Duration window,
+                         MeterRegistry meterRegistry) {
+        this(meterName, name, ratio, minAllowance, window, meterRegistry, System::nanoTime);
+    }
+
+    RequestBudget(String meterName, String name, double ratio, int minAllowance, Duration window,
+                  MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.ratio = ratio;
+        this.minAllowance = minAllowance;
+        this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+        this.nanoClock = nanoClock;
+        this.attempted = Counter.builder(meterName)
+                .tag("client", name)
+                .tag("outcome", "attempted")
+                .register(meterRegistry);
+        this.suppressed = Counter.builder(meterName)
+                .tag("client", name)
+                .tag("outcome", "suppressed")
+                .register(meterRegistry);
+    }
+
+    public synchronized void recordRequest() {
+        requests[currentBucket()]++;
+    }
+
+    /**
+     * Takes one extra call out of the budget, or records it as suppressed when the budget is spent.
+     */
+    public boolean tryAcquire() {
+        boolean acquired;
+        synchronized (this) {
+            var bucket = currentBucket();
+            acquired = sum(extras) < Math.max(minAllowance, sum(requests) * ratio);
+            if (acquired) {
+                extras[bucket]++;
+            }
+        }
+        (acquired ? attempted : suppressed).increment();
+        return acquired;
+    }
+
+    public double attemptedCount() {
+        return attempted.count();
+    }
+
+    public double suppressedCount() {
+        return suppressed.count();
+    }
+
+    private int currentBucket() {
+        var epoch = nanoClock.getAsLong() / bucketNanos;
+        var bucket = (int) Math.floorMod(epoch, (long) BUCKETS);
+        if (bucketEpochs[bucket] != epoch) {
+            bucketEpochs[bucket] = epoch;
+            requests[bucket] = 0;
+            extras[bucket] = 0;
+        }
+        return bucket;
+    }
+
+    private long sum(long[] counts) {
+        var now = nanoClock.getAsLong() / bucketNanos;
+        var total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (now - bucketEpochs[i] < BUCKETS) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+}
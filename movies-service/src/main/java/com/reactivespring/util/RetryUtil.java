@@ -1,18 +1,54 @@
 package com.reactivespring.util;
 
-import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
 import lombok.experimental.UtilityClass;
-import reactor.core.Exceptions;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
 @UtilityClass
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(MoviesInfoClientException.class::isInstance)
-                .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure())));
+    /**
+     * Retries 5xx and transport failures with exponential backoff and full jitter, as long as the upstream's
+     * retry budget allows it. 4xx responses are never retried. Once retries are exhausted or suppressed the
+     * original failure is propagated.
+     * <p>
+     * A retry whose backoff would outlast the inbound request's {@link Deadline} is not attempted either.
+     */
+    public static Retry retrySpec(RestClientProperties.Retry properties, RequestBudget budget) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            var failure = signal.failure();
+            if (!isRetryable(failure)
+                    || signal.totalRetries() >= properties.getMaxAttempts()
+                    || !budget.tryAcquire()) {
+                return Mono.error(failure);
+            }
+            var backoff = fullJitter(properties, signal.totalRetries());
+            return Mono.deferContextual(context -> Deadline.from(context)
+                            .filter(deadline -> deadline.remaining().compareTo(backoff) <= 0)
+                            .isPresent()
+                    ? Mono.error(failure)
+                    : Mono.delay(backoff));
+        }));
+    }
+
+    public static boolean isRetryable(Throwable failure) {
+        return failure instanceof MoviesInfoServerException
+                || failure instanceof ReviewsServerException
+                || failure instanceof WebClientRequestException;
+    }
+
+    static Duration fullJitter(RestClientProperties.Retry properties, long retry) {
+        var base = properties.getMinBackoff().toMillis();
+        var cap = properties.getMaxBackoff().toMillis();
+        var backoff = retry >= 31 ? cap : Math.min(cap, base << retry);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoff + 1));
     }
 }
@@ -0,0 +1,71 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single upstream subscription.
+ * <p>
+ * The upstream call is shared with {@code replay().refCount()}: a subscriber that cancels only
+ * detaches itself, and the call is cancelled once the last subscriber is gone. Late joiners
+ * receive everything the call has emitted so far. The key is released as soon as the call terminates.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flux<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter issued;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.issued = Counter.builder("movies.client.single-flight")
+                .tag("client", name)
+                .tag("outcome", "issued")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("movies.client.single-flight")
+                .tag("client", name)
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public Mono<V> mono(K key, Supplier<Mono<V>> call) {
+        return flux(key, () -> call.get().flux()).singleOrEmpty();
+    }
+
+    public Flux<V> flux(K key, Supplier<Flux<V>> call) {
+        return Flux.defer(() -> {
+            var created = new AtomicBoolean();
+            var shared = inFlight.computeIfAbsent(key, k -> {
+                created.set(true);
+                return share(k, call);
+            });
+            (created.get() ? issued : coalesced).increment();
+            return shared;
+        });
+    }
+
+    public double issuedCount() {
+        return issued.count();
+    }
+
+    public double coalescedCount() {
+        return coalesced.count();
+    }
+
+    private Flux<V> share(K key, Supplier<Flux<V>> call) {
+        var self = new AtomicReference<Flux<V>>();
+        var shared = Flux.defer(call)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+}
@@ -2,24 +2,44 @@ package com.reactivespring.controller;
 
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.client.MovieInfoRestClient;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieBatchItem;
+import com.reactivespring.domain.Review;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.util.List;
 
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -38,9 +58,29 @@ class MoviesControllerIntgTest {
     @Autowired
     WebTestClient client;
 
+    @Autowired
+    MovieInfoRestClient movieInfoRestClient;
+
+    @Autowired
+    MoviesController moviesController;
+
+    @Autowired
+    CircuitBreaker reviewsCircuitBreaker;
+
     @Value("${wiremock.server.port}")
     private String wiremockServerPort;
 
+    @BeforeEach
+    void setUp() {
+        WireMock.resetAllRequests();
+        movieInfoRestClient.evictMovieInfo("abc");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewsCircuitBreaker.reset();
+    }
+
     @Test
     void retrieveMovieId() {
 
@@ -97,6 +137,7 @@ class MoviesControllerIntgTest {
                 .expectStatus().is4xxClientError()
                 .expectBody(String.class)
                 .isEqualTo("There is no MovieInfo available for the passed Id : abc");
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
     }
 
     @Test
@@ -130,6 +171,325 @@ class MoviesControllerIntgTest {
                 });
     }
 
+    @Test
+    void retrieveMovieId_not_found_reviews_requested_concurrently() {
+
+        var movieId = "concurrent";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withStatus(404)
+                                .withFixedDelay(200)
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isNotFound();
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId)));
+    }
+
+    @Test
+    void retrieveMovieId_reviews_5xx_with_retries() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(500)
+                                .withBody("Review Service Unavailable")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Server Exception in ReviewService Review Service Unavailable");
+        WireMock.verify(4, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieId_reviews_circuit_open() {
+
+        var movieId = "abc";
+        stubFor(get(urlPathMatching("/v1/movieinfos/.*"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> assertThat(response.getResponseBody().isReviewsDegraded()).isFalse());
+
+        reviewsCircuitBreaker.transitionToForcedOpenState();
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getMovieInfo().getName()).isEqualTo("Batman Begins");
+                    assertThat(movie.getReviewList()).hasSize(2);
+                    assertThat(movie.isReviewsDegraded()).isTrue();
+                });
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+
+        client.get()
+                .uri("/v1/movies/{id}", "uncached")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getReviewList()).isEmpty();
+                    assertThat(movie.isReviewsDegraded()).isTrue();
+                });
+    }
+
+    @Test
+    void retrieveMovieId_maxReviews() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("limit", equalTo("1"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Cursor", "cursor-1")
+                                .withBody("[{\"reviewId\": \"1\", \"movieInfoId\": 1, \"comment\": \"Awesome Movie\", \"rating\": 9.0}]")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("limit", equalTo("2"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}?maxReviews=1", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getReviewList()).hasSize(1);
+                    assertThat(movie.getReviewsNext()).isEqualTo("/v1/movies/abc/reviews?after=cursor-1");
+                });
+
+        client.get()
+                .uri("/v1/movies/{id}?maxReviews=2", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getReviewList()).hasSize(2);
+                    assertThat(movie.getReviewsNext()).isNull();
+                });
+    }
+
+    @Test
+    void retrieveMovieId_maxReviews_beyond_upstream_page_size() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        // the reviews service caps its pages at 2, so the last review is asked for on its own
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("limit", equalTo("3"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Cursor", "page-2")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("limit", equalTo("1"))
+                .withQueryParam("after", equalTo("page-2"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Cursor", "page-3")
+                                .withBody("[{\"reviewId\": \"3\", \"movieInfoId\": 1, \"comment\": \"Good Movie\", \"rating\": 7.0}]")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}?maxReviews=3", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getReviewList()).extracting(Review::getReviewId).containsExactly("1", "2", "3");
+                    assertThat(movie.getReviewsNext()).isEqualTo("/v1/movies/abc/reviews?after=page-3");
+                });
+    }
+
+    @Test
+    void retrieveReviewsStream() {
+
+        var movieId = "abc";
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        var reviews = client.get()
+                .uri("/v1/movies/{id}/reviews?skip=1", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(reviews)
+                .assertNext(review -> assertThat(review.getReviewId()).isEqualTo("2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveReviewsStream_resumes_after_cursor() {
+
+        var movieId = "abc";
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("after", equalTo("cursor-1"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("[{\"reviewId\": \"2\", \"movieInfoId\": 1, \"comment\": \"Excellent Movie\", \"rating\": 8.0}]")
+                )
+        );
+
+        var reviews = client.get()
+                .uri("/v1/movies/{id}/reviews?after=cursor-1", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(reviews)
+                .assertNext(review -> assertThat(review.getReviewId()).isEqualTo("2"))
+                .verifyComplete();
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("after", equalTo("cursor-1")));
+    }
+
+    @Test
+    void retrieveReviewsStream_cursor_is_encoded() {
+
+        var after = "{cursor}&limit=1&movieInfoId=def";
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/movies/{id}/reviews")
+                        .queryParam("after", "{after}")
+                        .build("abc", after))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk();
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo("abc"))
+                .withQueryParam("limit", equalTo("1000"))
+                .withQueryParam("after", equalTo(after)));
+    }
+
+    @Test
+    void retrieveReviewsStream_negative_skip() {
+
+        client.get()
+                .uri("/v1/movies/{id}/reviews?skip=-1", "abc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveReviewsStream_malformed_cursor() {
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("after", equalTo("not-a-cursor"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(400)
+                                .withBody("Invalid cursor")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}/reviews?after=not-a-cursor", "abc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void retrieveMovieId_500() {
 
@@ -170,4 +530,414 @@ class MoviesControllerIntgTest {
                 .isEqualTo("Server exception caught : MovieInfo Service Unavailable");
         WireMock.verify(4, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
     }
+
+    @Test
+    void retrieveMoviesByIds() {
+
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch-get"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody("{\"movieInfoId\": \"def\", \"status\": 404}\n"
+                                        + "{\"movieInfoId\": \"abc\", \"status\": 200, \"movieInfo\": {\"movieInfoId\": \"abc\", \"name\": \"Batman Begins\", \"year\": 2005, \"cast\": [\"Christian Bale\"]}}\n")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        var movies = client.get()
+                .uri("/v1/movies?ids={ids}", "def,abc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(MovieBatchItem.class)
+                .getResponseBody();
+
+        StepVerifier.create(movies)
+                .assertNext(item -> {
+                    assertThat(item.getMovieId()).isEqualTo("def");
+                    assertThat(item.getStatus()).isEqualTo(404);
+                    assertThat(item.getMovie()).isNull();
+                })
+                .assertNext(item -> {
+                    assertThat(item.getMovieId()).isEqualTo("abc");
+                    assertThat(item.getStatus()).isEqualTo(200);
+                    assertThat(item.getMovie().getReviewList()).hasSize(2);
+                })
+                .verifyComplete();
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/movieinfos/batch-get"))
+                .withRequestBody(equalToJson("[\"def\", \"abc\"]")));
+        WireMock.verify(0, getRequestedFor(urlPathMatching("/v1/movieinfos/.*")));
+    }
+
+    @Test
+    void retrieveMoviesBatch() {
+
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch-get"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody("{\"movieInfoId\": \"abc\", \"status\": 200, \"movieInfo\": {\"movieInfoId\": \"abc\", \"name\": \"Batman Begins\", \"year\": 2005, \"cast\": [\"Christian Bale\"]}}\n")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.post()
+                .uri("/v1/movies/batch-get")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(List.of("abc"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieBatchItem.class)
+                .consumeWith(response -> {
+                    var items = response.getResponseBody();
+                    assertThat(items).hasSize(1);
+                    assertThat(items.get(0).getMovie().getMovieInfo().getName()).isEqualTo("Batman Begins");
+                });
+    }
+
+    @Test
+    void retrieveMoviesBatch_cached_movie_infos_are_not_fetched_again() {
+
+        stubFor(get(urlEqualTo("/v1/movieinfos/abc"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch-get"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/x-ndjson")
+                                .withBody("{\"movieInfoId\": \"def\", \"status\": 404}\n")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        StepVerifier.create(movieInfoRestClient.retrieveMovieInfo("abc"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        client.post()
+                .uri("/v1/movies/batch-get")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(List.of("abc", "def"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieBatchItem.class)
+                .consumeWith(response -> {
+                    var items = response.getResponseBody();
+                    assertThat(items).extracting(MovieBatchItem::getStatus).containsExactly(200, 404);
+                });
+        WireMock.verify(1, postRequestedFor(urlEqualTo("/v1/movieinfos/batch-get"))
+                .withRequestBody(equalToJson("[\"def\"]")));
+    }
+
+    @Test
+    void retrieveMoviesBatch_movie_info_batch_fails() {
+
+        stubFor(post(urlEqualTo("/v1/movieinfos/batch-get"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(400)
+                                .withBody("Number of movie info ids must be between 1 and 200")
+                )
+        );
+
+        client.post()
+                .uri("/v1/movies/batch-get")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(List.of("def"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieBatchItem.class)
+                .consumeWith(response -> {
+                    var items = response.getResponseBody();
+                    assertThat(items).hasSize(1);
+                    assertThat(items.get(0).getStatus()).isEqualTo(400);
+                });
+    }
+
+    @Test
+    void retrieveMoviesBatch_empty() {
+
+        client.post()
+                .uri("/v1/movies/batch-get")
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void retrieveMovieId_cached() {
+
+        var movieId = "cached";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        for (int i = 0; i < 2; i++) {
+            client.get()
+                    .uri("/v1/movies/{id}", movieId)
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+
+        client.delete()
+                .uri("/v1/movies/{id}/cache", movieId)
+                .exchange()
+                .expectStatus().isNoContent();
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+        WireMock.verify(2, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieId_pool_metrics() {
+
+        var movieId = "pooled";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        for (var pool : List.of("movies-info", "reviews")) {
+            var maxConnections = Metrics.globalRegistry.find("reactor.netty.connection.provider.max.connections")
+                    .tag("name", pool)
+                    .gauge();
+            assertThat(maxConnections).isNotNull();
+            assertThat(maxConnections.value()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void retrieveMovieId_forwards_remaining_deadline() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(Deadline.HEADER, "2000")
+                .exchange()
+                .expectStatus().isOk();
+        // the movie info load and the reviews call are shared by concurrent requests, so they carry no one's deadline
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withoutHeader(Deadline.HEADER));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withoutHeader(Deadline.HEADER));
+    }
+
+    @Test
+    void retrieveMovieId_maxReviews_forwards_remaining_deadline() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}?maxReviews=10", movieId)
+                .header(Deadline.HEADER, "2000")
+                .exchange()
+                .expectStatus().isOk();
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader(Deadline.HEADER, matching("[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieId_forwards_remaining_deadline_when_finishing_reviews() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        ReflectionTestUtils.setField(moviesController, "infoFailurePolicy", InfoFailurePolicy.FINISH);
+        try {
+            client.get()
+                    .uri("/v1/movies/{id}?maxReviews=10", movieId)
+                    .header(Deadline.HEADER, "2000")
+                    .exchange()
+                    .expectStatus().isOk();
+        } finally {
+            ReflectionTestUtils.setField(moviesController, "infoFailurePolicy", InfoFailurePolicy.CANCEL);
+        }
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader(Deadline.HEADER, matching("[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieId_deadline_exceeded() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                                .withFixedDelay(1000)
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(Deadline.HEADER, "200")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    void retrieveMovieId_deadline_already_spent() {
+
+        var movieId = "abc";
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(Deadline.HEADER, "0")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieId_follows_review_pages() {
+
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("X-Next-Cursor", "page-2")
+                                .withBodyFile("reviews.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("after", equalTo("page-2"))
+                .willReturn(
+                        aResponse()
+                                .withHeader("Content-Type", "application/json")
+                                .withBody("[{\"reviewId\": \"3\", \"movieInfoId\": 1, \"comment\": \"Good Movie\", \"rating\": 7.0}]")
+                )
+        );
+
+        client.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(response -> {
+                    var movie = response.getResponseBody();
+                    assertThat(movie.getReviewList()).hasSize(3);
+                });
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
 }
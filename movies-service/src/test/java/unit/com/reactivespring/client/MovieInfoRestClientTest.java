@@ -0,0 +1,136 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.deadline.DeadlineExchangeFilterFunction;
+import com.reactivespring.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieInfoRestClientTest {
+
+    private static final String MOVIE_INFO = """
+            {"movieInfoId": "abc", "name": "Batman Begins", "year": 2005, "cast": ["Christian Bale"]}""";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void retrieveMovieInfo_callersSharingAMissKeepTheirOwnDeadlines() {
+        var client = movieInfoRestClient(Duration.ofMillis(300));
+
+        var shortCaller = client.retrieveMovieInfo("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofMillis(50))));
+        var longCaller = client.retrieveMovieInfo("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofSeconds(5))));
+
+        // the short caller starts the load, yet its deadline neither fails nor cancels it for the long caller
+        var shortResult = shortCaller.toFuture();
+        var longResult = longCaller.delaySubscription(Duration.ofMillis(10)).toFuture();
+
+        StepVerifier.create(Mono.fromFuture(shortResult))
+                .expectError(DeadlineExceededException.class)
+                .verify();
+        StepVerifier.create(Mono.fromFuture(longResult))
+                .assertNext(movieInfo -> assertThat(movieInfo.getName()).isEqualTo("Batman Begins"))
+                .verifyComplete();
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void retrieveMovieInfo_sharedLoadForwardsNoCallersDeadline() {
+        var client = movieInfoRestClient(Duration.ofMillis(100));
+
+        var first = client.retrieveMovieInfo("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofMillis(500))));
+        var second = client.retrieveMovieInfo("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofSeconds(30))));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(both -> assertThat(both.getT1()).isEqualTo(both.getT2()))
+                .verifyComplete();
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).headers().containsKey(Deadline.HEADER)).isFalse();
+    }
+
+    @Test
+    void retrieveMovieInfos_fetchesOnlyUncachedIdsInOneBatchAndCachesThem() {
+        var client = movieInfoRestClient(Duration.ZERO, request -> request.method() == HttpMethod.POST
+                ? ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                        .body("{\"movieInfoId\": \"def\", \"status\": 200, "
+                                + "\"movieInfo\": {\"movieInfoId\": \"def\", \"name\": \"The Dark Knight\"}}\n"
+                                + "{\"movieInfoId\": \"ghi\", \"status\": 404}\n")
+                        .build()
+                : movieInfoResponse());
+        StepVerifier.create(client.retrieveMovieInfo("abc")).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(client.retrieveMovieInfos(List.of("abc", "def", "ghi", "def")))
+                .assertNext(movieInfos -> {
+                    assertThat(movieInfos).containsOnlyKeys("abc", "def");
+                    assertThat(movieInfos.get("def").getName()).isEqualTo("The Dark Knight");
+                })
+                .verifyComplete();
+        StepVerifier.create(client.retrieveMovieInfo("def"))
+                .assertNext(movieInfo -> assertThat(movieInfo.getName()).isEqualTo("The Dark Knight"))
+                .verifyComplete();
+        assertThat(requests).extracting(ClientRequest::method).containsExactly(HttpMethod.GET, HttpMethod.POST);
+    }
+
+    @Test
+    void retrieveMovieInfoInfoStream_leavesOutResetEvents() {
+        var client = movieInfoRestClient(Duration.ZERO, request -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body("{\"eventId\": \"1-3\", \"sequence\": 3, \"type\": \"RESET\"}\n"
+                        + "{\"eventId\": \"1-4\", \"sequence\": 4, \"type\": \"CREATED\", "
+                        + "\"movieInfo\": " + MOVIE_INFO + "}\n")
+                .build());
+
+        StepVerifier.create(client.retrieveMovieInfoInfoStream())
+                .assertNext(movie -> assertThat(movie.getMovieInfo().getName()).isEqualTo("Batman Begins"))
+                .verifyComplete();
+    }
+
+    private MovieInfoRestClient movieInfoRestClient(Duration latency) {
+        return movieInfoRestClient(latency, request -> movieInfoResponse());
+    }
+
+    private MovieInfoRestClient movieInfoRestClient(Duration latency, Function<ClientRequest, ClientResponse> responses) {
+        var webClient = WebClient.builder()
+                .filter(new DeadlineExchangeFilterFunction("movies-info", meterRegistry))
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.delay(latency).map(tick -> responses.apply(request));
+                })
+                .build();
+        var client = new MovieInfoRestClient(webClient, meterRegistry, new RestClientProperties(), 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(client, "moviesInfoUrl", "http://localhost/v1/movieinfos");
+        ReflectionTestUtils.setField(client, "batchMaxIds", 200);
+        return client;
+    }
+
+    private static ClientResponse movieInfoResponse() {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(MOVIE_INFO)
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.deadline.DeadlineExchangeFilterFunction;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.DeadlineExceededException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReviewsRestClientTest {
+
+    private static final String REVIEWS = """
+            [{"reviewId": "1", "movieInfoId": 1, "comment": "Awesome Movie", "rating": 9.0},
+             {"reviewId": "2", "movieInfoId": 1, "comment": "Excellent Movie", "rating": 8.0}]""";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void retrieveReviewList_callersSharingACallKeepTheirOwnDeadlines() {
+        var client = reviewsRestClient(Duration.ofMillis(300));
+
+        var shortCaller = client.retrieveReviewList("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofMillis(50))));
+        var longCaller = client.retrieveReviewList("abc")
+                .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ofSeconds(5))));
+
+        // the short caller starts the call, yet its deadline neither fails nor cancels it for the long caller
+        var shortResult = shortCaller.toFuture();
+        var longResult = longCaller.delaySubscription(Duration.ofMillis(10)).toFuture();
+
+        StepVerifier.create(Mono.fromFuture(shortResult))
+                .expectError(DeadlineExceededException.class)
+                .verify();
+        StepVerifier.create(Mono.fromFuture(longResult))
+                .assertNext(reviews -> assertThat(reviews).extracting(Review::getReviewId).containsExactly("1", "2"))
+                .verifyComplete();
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).headers().containsKey(Deadline.HEADER)).isFalse();
+    }
+
+    @Test
+    void streamReviews_releasesTheBulkheadPermitBeforeThePageIsDrained() {
+        var bulkhead = Bulkhead.of("reviews", BulkheadConfig.custom().maxConcurrentCalls(1).build());
+        var client = reviewsRestClient(Duration.ZERO, bulkhead);
+
+        // the client has asked for one review only, so the rest of the page waits on its demand
+        StepVerifier.create(client.streamReviews("abc", null), 1)
+                .assertNext(review -> assertThat(review.getReviewId()).isEqualTo("1"))
+                .then(() -> assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1))
+                .thenRequest(1)
+                .assertNext(review -> assertThat(review.getReviewId()).isEqualTo("2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamReviews_bodyFailingPartwayIsNotRetried() {
+        // the first review is read before the connection drops in the middle of the second
+        var client = reviewsRestClient(Duration.ZERO, Bulkhead.ofDefaults("reviews"), request -> ClientResponse
+                .create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(Flux.<DataBuffer>concat(
+                        Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                                "{\"reviewId\": \"1\", \"movieInfoId\": 1, \"rating\": 9.0}\n{\"review"
+                                        .getBytes(StandardCharsets.UTF_8))),
+                        Flux.error(new WebClientRequestException(new IOException("Connection reset"), HttpMethod.GET,
+                                request.url(), HttpHeaders.EMPTY))))
+                .build());
+
+        StepVerifier.create(client.streamReviews("abc", null))
+                .assertNext(review -> assertThat(review.getReviewId()).isEqualTo("1"))
+                .expectError()
+                .verify();
+        assertThat(requests).hasSize(1);
+    }
+
+    private ReviewsRestClient reviewsRestClient(Duration latency) {
+        return reviewsRestClient(latency, Bulkhead.ofDefaults("reviews"));
+    }
+
+    private ReviewsRestClient reviewsRestClient(Duration latency, Bulkhead bulkhead) {
+        return reviewsRestClient(latency, bulkhead, request -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(REVIEWS)
+                .build());
+    }
+
+    private ReviewsRestClient reviewsRestClient(Duration latency, Bulkhead bulkhead,
+                                                Function<ClientRequest, ClientResponse> responses) {
+        var webClient = WebClient.builder()
+                .filter(new DeadlineExchangeFilterFunction("reviews", meterRegistry))
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.delay(latency).map(tick -> responses.apply(request));
+                })
+                .build();
+        var client = new ReviewsRestClient(webClient, meterRegistry, new RestClientProperties(),
+                CircuitBreaker.ofDefaults("reviews"), bulkhead, 100);
+        ReflectionTestUtils.setField(client, "reviewsUrl", "http://localhost/v1/reviews");
+        ReflectionTestUtils.setField(client, "reviewsPageSize", 1000);
+        return client;
+    }
+}
@@ -0,0 +1,125 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgerTest {
+
+    private Hedger hedger(boolean enabled, double budgetRatio) {
+        return new Hedger("test", enabled, 0.95, Duration.ofMillis(20), budgetRatio, Duration.ofSeconds(10),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void hedge_slowPrimaryLosesToHedgedRequest() {
+        var hedger = hedger(true, 1.0);
+        var primaryCancelled = new AtomicBoolean();
+
+        var result = hedger.hedge(hedged -> hedged
+                ? Mono.just("hedged")
+                : Mono.delay(Duration.ofSeconds(5)).map(tick -> "primary").doOnCancel(() -> primaryCancelled.set(true)));
+
+        StepVerifier.create(result)
+                .expectNext("hedged")
+                .verifyComplete();
+        assertThat(primaryCancelled).isTrue();
+        assertThat(hedger.hedgeWonCount()).isEqualTo(1);
+    }
+
+    @Test
+    void hedge_failedHedgeDoesNotWin() {
+        var hedger = hedger(true, 1.0);
+
+        var result = hedger.hedge(hedged -> hedged
+                ? Mono.<String>error(new IllegalStateException("hedge failed"))
+                : Mono.delay(Duration.ofMillis(100)).map(tick -> "primary"));
+
+        StepVerifier.create(result)
+                .expectNext("primary")
+                .verifyComplete();
+        assertThat(hedger.hedgeWonCount()).isZero();
+    }
+
+    @Test
+    void hedge_primaryErrorStillFailsWhenHedgeFails() {
+        var hedger = hedger(true, 1.0);
+
+        var result = hedger.hedge(hedged -> hedged
+                ? Mono.<String>error(new IllegalStateException("hedge failed"))
+                : Mono.delay(Duration.ofMillis(100)).then(Mono.<String>error(new IllegalStateException("primary failed"))));
+
+        StepVerifier.create(result)
+                .verifyErrorMessage("primary failed");
+    }
+
+    @Test
+    void hedge_cancelledPrimaryIsTimed() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var hedger = new Hedger("test", true, 0.95, Duration.ofMillis(20), 1.0, Duration.ofSeconds(10), meterRegistry);
+
+        var result = hedger.hedge(hedged -> hedged
+                ? Mono.just("hedged")
+                : Mono.delay(Duration.ofSeconds(5)).map(tick -> "primary"));
+
+        StepVerifier.create(result)
+                .expectNext("hedged")
+                .verifyComplete();
+        var latency = meterRegistry.get("movies.client.latency").timer();
+        assertThat(latency.count()).isEqualTo(1);
+        assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void hedge_fastPrimaryIsNotHedged() {
+        var hedger = hedger(true, 1.0);
+        var calls = new AtomicInteger();
+
+        var result = hedger.hedge(hedged -> {
+            calls.incrementAndGet();
+            return Mono.just(hedged ? "hedged" : "primary");
+        });
+
+        StepVerifier.create(result)
+                .expectNext("primary")
+                .verifyComplete();
+        assertThat(calls).hasValue(1);
+        assertThat(hedger.hedgeWonCount()).isZero();
+    }
+
+    @Test
+    void hedge_notSentWhenBudgetIsSpent() {
+        var hedger = hedger(true, 0);
+        var hedgedCalls = new AtomicInteger();
+
+        var result = hedger.hedge(hedged -> {
+            if (hedged) {
+                hedgedCalls.incrementAndGet();
+                return Mono.just("hedged");
+            }
+            return Mono.delay(Duration.ofMillis(100)).map(tick -> "primary");
+        });
+
+        StepVerifier.create(result)
+                .expectNext("primary")
+                .verifyComplete();
+        assertThat(hedgedCalls).hasValue(0);
+    }
+
+    @Test
+    void hedge_disabledCallsPrimaryOnly() {
+        var hedger = hedger(false, 1.0);
+
+        StepVerifier.create(hedger.hedge(hedged -> Mono.delay(Duration.ofMillis(100)).map(tick -> hedged)))
+                .expectNext(false)
+                .verifyComplete();
+    }
+}
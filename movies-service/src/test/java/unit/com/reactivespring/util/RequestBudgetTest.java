@@ -0,0 +1,48 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestBudgetTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final RequestBudget budget = new RequestBudget("test.budget", "test", 0.5, 2, Duration.ofSeconds(10),
+            new SimpleMeterRegistry(), clock::get);
+
+    @Test
+    void minAllowanceAvailableWithoutTraffic() {
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+
+        assertThat(budget.attemptedCount()).isEqualTo(2);
+        assertThat(budget.suppressedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void extraCallsCappedByRatioOfRequests() {
+        for (int i = 0; i < 10; i++) {
+            budget.recordRequest();
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(budget.tryAcquire()).isTrue();
+        }
+        assertThat(budget.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void budgetRecoversOnceWindowSlides() {
+        budget.tryAcquire();
+        budget.tryAcquire();
+        assertThat(budget.tryAcquire()).isFalse();
+
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertThat(budget.tryAcquire()).isTrue();
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryUtilTest {
+
+    private final RestClientProperties.Retry properties = new RestClientProperties.Retry();
+
+    {
+        properties.setMinBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(10));
+    }
+
+    @Test
+    void retrySpec_retriesServerErrors() {
+        var budget = new RequestBudget("movies.client.retries", "test", 0.2, 10, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("Server exception caught"));
+        });
+
+        StepVerifier.create(call.retryWhen(RetryUtil.retrySpec(properties, budget)))
+                .verifyErrorMessage("Server exception caught");
+        assertThat(attempts).hasValue(4);
+        assertThat(budget.attemptedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void retrySpec_doesNotRetryClientErrors() {
+        var budget = new RequestBudget("movies.client.retries", "test", 0.2, 10, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new MoviesInfoClientException("There is no MovieInfo", 404));
+        });
+
+        StepVerifier.create(call.retryWhen(RetryUtil.retrySpec(properties, budget)))
+                .verifyErrorMessage("There is no MovieInfo");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void retrySpec_stopsWhenBudgetIsSpent() {
+        var budget = new RequestBudget("movies.client.retries", "test", 0, 1, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("Server exception caught"));
+        });
+
+        StepVerifier.create(call.retryWhen(RetryUtil.retrySpec(properties, budget)))
+                .verifyErrorMessage("Server exception caught");
+        assertThat(attempts).hasValue(2);
+        assertThat(budget.suppressedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void retrySpec_stopsWhenDeadlineHasPassed() {
+        var budget = new RequestBudget("movies.client.retries", "test", 0.2, 10, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("Server exception caught"));
+        });
+
+        StepVerifier.create(call.retryWhen(RetryUtil.retrySpec(properties, budget))
+                        .contextWrite(context -> context.put(Deadline.contextKey(), Deadline.after(Duration.ZERO))))
+                .verifyErrorMessage("Server exception caught");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void fullJitter_staysWithinCappedExponentialBackoff() {
+        for (int retry = 0; retry < 40; retry++) {
+            var delay = RetryUtil.fullJitter(properties, retry);
+            assertThat(delay).isBetween(Duration.ZERO, Duration.ofMillis(Math.min(10, 1L << Math.min(retry, 20))));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+
+    @Test
+    void mono_concurrentCallsShareOneUpstreamCall() {
+        var subscriptions = new AtomicInteger();
+        var upstream = Sinks.<String>one();
+        var call = upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        var first = singleFlight.mono("abc", () -> call);
+        var second = singleFlight.mono("abc", () -> call);
+
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> upstream.tryEmitValue("Batman Begins"))
+                .expectNext("Batman Begins", "Batman Begins")
+                .verifyComplete();
+
+        assertThat(subscriptions).hasValue(1);
+        assertThat(singleFlight.issuedCount()).isEqualTo(1);
+        assertThat(singleFlight.coalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void mono_errorIsSharedWithAllCallers() {
+        var upstream = Sinks.<String>one();
+
+        var first = singleFlight.mono("abc", upstream::asMono)
+                .onErrorResume(ex -> Mono.just(ex.getMessage()));
+        var second = singleFlight.mono("abc", upstream::asMono)
+                .onErrorResume(ex -> Mono.just(ex.getMessage()));
+
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> upstream.tryEmitError(new IllegalStateException("boom")))
+                .expectNext("boom", "boom")
+                .verifyComplete();
+        assertThat(singleFlight.issuedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void mono_cancelledSubscriberDoesNotCancelOthers() {
+        var cancelled = new AtomicInteger();
+        var upstream = Sinks.<String>one();
+        var call = upstream.asMono().doOnCancel(cancelled::incrementAndGet);
+
+        var first = singleFlight.mono("abc", () -> call);
+        var second = singleFlight.mono("abc", () -> call);
+
+        var disposable = first.subscribe();
+        StepVerifier.create(second)
+                .then(disposable::dispose)
+                .then(() -> upstream.tryEmitValue("Batman Begins"))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+
+        assertThat(cancelled).hasValue(0);
+    }
+
+    @Test
+    void mono_keyIsReleasedAfterCompletion() {
+        var subscriptions = new AtomicInteger();
+        var call = Mono.fromSupplier(() -> "call-" + subscriptions.incrementAndGet());
+
+        StepVerifier.create(singleFlight.mono("abc", () -> call))
+                .expectNext("call-1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.mono("abc", () -> call))
+                .expectNext("call-2")
+                .verifyComplete();
+
+        assertThat(singleFlight.issuedCount()).isEqualTo(2);
+        assertThat(singleFlight.coalescedCount()).isZero();
+    }
+
+    @Test
+    void flux_lateJoinerReceivesAllElements() {
+        var upstream = Sinks.many().unicast().<String>onBackpressureBuffer();
+
+        var first = singleFlight.flux("abc", upstream::asFlux);
+        var firstResult = first.collectList().toFuture();
+        upstream.tryEmitNext("review-1");
+
+        StepVerifier.create(singleFlight.flux("abc", upstream::asFlux))
+                .expectNext("review-1")
+                .then(() -> upstream.tryEmitNext("review-2"))
+                .expectNext("review-2")
+                .then(upstream::tryEmitComplete)
+                .verifyComplete();
+
+        assertThat(firstResult.join()).containsExactly("review-1", "review-2");
+    }
+}